@@ -0,0 +1,6 @@
+package com.example.cashcard.reactive;
+
+import org.springframework.data.annotation.Id;
+
+public record CashCard(@Id Long id, Double amount, String owner) {
+}
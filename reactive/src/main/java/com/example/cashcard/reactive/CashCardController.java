@@ -0,0 +1,112 @@
+package com.example.cashcard.reactive;
+
+import org.springframework.data.domain.PageRequest;
+import org.springframework.data.domain.Pageable;
+import org.springframework.data.domain.Sort;
+import org.springframework.http.ResponseEntity;
+import org.springframework.web.bind.annotation.*;
+import org.springframework.web.util.UriComponentsBuilder;
+import reactor.core.publisher.Flux;
+import reactor.core.publisher.Mono;
+
+import java.math.BigDecimal;
+import java.net.URI;
+import java.security.Principal;
+import java.util.List;
+
+//El mismo contrato que CashCardController en el proyecto principal: rutas, códigos de estado, paginación,
+// ordenación por defecto (amount ascendente), filtro minAmount/maxAmount, comprobación de propietario y libro mayor
+// (POST crea la tarjeta y su movimiento de apertura en una transacción con CashCardLedger, PUT registra la
+// diferencia, GET /{id}/transactions los devuelve).
+//
+//La diferencia es que cada método devuelve un Mono que describe el trabajo en lugar de hacerlo: WebFlux se suscribe,
+// y mientras R2DBC espera a la base de datos el hilo del event loop atiende otras peticiones.
+@RestController
+@RequestMapping("/cashcards")
+public class CashCardController {
+
+    private CashCardRepository cashCardRepository;
+    private CashCardLedger cashCardLedger;
+
+    public CashCardController(CashCardRepository cashCardRepository, CashCardLedger cashCardLedger) {
+        this.cashCardRepository = cashCardRepository;
+        this.cashCardLedger = cashCardLedger;
+    }
+
+    @GetMapping("/{requestedId}")
+    public Mono<ResponseEntity<CashCard>> findById(@PathVariable Long requestedId, Principal principal) {
+        return cashCardRepository.findByIdAndOwner(requestedId, principal.getName())
+                .map(ResponseEntity::ok)
+                .defaultIfEmpty(ResponseEntity.notFound().build());
+    }
+
+    @PostMapping
+    private Mono<ResponseEntity<Void>> createCashCard(@RequestBody CashCard newCashCardRequest,
+                                                      UriComponentsBuilder ucb) {
+        BigDecimal amount = newCashCardRequest.amount() != null
+                ? BigDecimal.valueOf(newCashCardRequest.amount()) : BigDecimal.ZERO;
+        return cashCardLedger.create(newCashCardRequest.owner(), amount)
+                .map(savedCashCard -> {
+                    URI locationOfNewCashCard = ucb
+                            .path("cashcards/{id}")
+                            .buildAndExpand(savedCashCard.id())
+                            .toUri();
+                    return ResponseEntity.created(locationOfNewCashCard).<Void>build();
+                });
+    }
+
+    @GetMapping
+    public Mono<ResponseEntity<List<CashCard>>> findAll(Pageable pageable,
+                                                        @RequestParam(required = false) Double minAmount,
+                                                        @RequestParam(required = false) Double maxAmount,
+                                                        Principal principal) {
+        if (minAmount != null && maxAmount != null && minAmount > maxAmount) {
+            return Mono.just(ResponseEntity.badRequest().<List<CashCard>>build());
+        }
+        PageRequest pageRequest = PageRequest.of(
+                pageable.getPageNumber(),
+                pageable.getPageSize(),
+                pageable.getSortOr(Sort.by(Sort.Direction.ASC, "amount"))
+        );
+        Flux<CashCard> page;
+        if (minAmount == null && maxAmount == null) {
+            page = cashCardRepository.findByOwner(principal.getName(), pageRequest);
+        } else if (maxAmount == null) {
+            page = cashCardRepository.findByOwnerAndAmountGreaterThanEqual(principal.getName(), minAmount, pageRequest);
+        } else if (minAmount == null) {
+            page = cashCardRepository.findByOwnerAndAmountLessThanEqual(principal.getName(), maxAmount, pageRequest);
+        } else {
+            page = cashCardRepository.findByOwnerAndAmountBetween(principal.getName(), minAmount, maxAmount, pageRequest);
+        }
+        return page.collectList().map(ResponseEntity::ok);
+    }
+
+    @PutMapping("/{requestedId}")
+    private Mono<ResponseEntity<Void>> putCashCard(@PathVariable Long requestedId, @RequestBody CashCard cashCardUpdate, Principal principal) {
+        return cashCardRepository.findByIdAndOwner(requestedId, principal.getName())
+                .flatMap(cashCard -> cashCardLedger.setBalance(cashCard.id(), BigDecimal.valueOf(cashCardUpdate.amount()))
+                        .thenReturn(ResponseEntity.noContent().<Void>build()))
+                .defaultIfEmpty(ResponseEntity.notFound().build());
+    }
+
+    @GetMapping("/{requestedId}/transactions")
+    public Mono<ResponseEntity<List<CashCardTransaction>>> findTransactions(@PathVariable Long requestedId,
+                                                                            @RequestParam(required = false) Long before,
+                                                                            @RequestParam(defaultValue = "20") int size,
+                                                                            Principal principal) {
+        return cashCardRepository.existsByIdAndOwner(requestedId, principal.getName())
+                .flatMap(exists -> exists
+                        ? cashCardLedger.findTransactions(requestedId, before, Math.min(Math.max(size, 1), 100))
+                                .collectList()
+                                .map(ResponseEntity::ok)
+                        : Mono.just(ResponseEntity.notFound().<List<CashCardTransaction>>build()));
+    }
+
+    @DeleteMapping("/{id}")
+    private Mono<ResponseEntity<Void>> deleteCashCard(@PathVariable Long id, Principal principal) {
+        return cashCardRepository.existsByIdAndOwner(id, principal.getName())
+                .flatMap(exists -> exists
+                        ? cashCardRepository.deleteById(id).thenReturn(ResponseEntity.noContent().<Void>build())
+                        : Mono.just(ResponseEntity.notFound().<Void>build()));
+    }
+}
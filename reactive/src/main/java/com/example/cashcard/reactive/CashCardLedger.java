@@ -0,0 +1,158 @@
+package com.example.cashcard.reactive;
+
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.r2dbc.core.DatabaseClient;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.ReactiveTransactionManager;
+import org.springframework.transaction.reactive.TransactionalOperator;
+import reactor.core.publisher.Flux;
+import reactor.core.publisher.Mono;
+
+import java.math.BigDecimal;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.function.UnaryOperator;
+
+//El libro mayor del proyecto principal (CashCardLedger) sobre R2DBC, con las mismas tablas y las mismas reglas:
+// cada cambio de saldo es una fila de CASH_CARD_TRANSACTION y CASH_CARD.AMOUNT se actualiza en la misma transacción,
+// con la fila de la tarjeta bloqueada (SELECT ... FOR UPDATE). Así las dos variantes pueden escribir en la misma base
+// de datos y AMOUNT sigue siendo la suma del libro mayor.
+//
+//No agrupa escrituras: cada movimiento es su propia transacción sin bloquear el event loop. Sí guarda las
+// instantáneas en BALANCE_SNAPSHOT con la misma regla (cola de snapshot-interval movimientos) y en la misma
+// transacción, así que el historial se lee igual de rápido se escriba con una variante o con la otra.
+@Component
+public class CashCardLedger {
+
+    private static final String SIGNED_AMOUNT = "CASE WHEN TYPE = 'CREDIT' THEN AMOUNT ELSE -AMOUNT END";
+
+    private final DatabaseClient databaseClient;
+    private final CashCardRepository cashCardRepository;
+    private final TransactionalOperator transactionalOperator;
+    private final int snapshotInterval;
+
+    public CashCardLedger(DatabaseClient databaseClient,
+                          CashCardRepository cashCardRepository,
+                          ReactiveTransactionManager transactionManager,
+                          @Value("${cashcard.ledger.snapshot-interval:100}") int snapshotInterval) {
+        this.databaseClient = databaseClient;
+        this.cashCardRepository = cashCardRepository;
+        this.transactionalOperator = TransactionalOperator.create(transactionManager);
+        this.snapshotInterval = snapshotInterval;
+    }
+
+    //Crea la tarjeta con su saldo inicial y el CREDIT de apertura en la misma transacción: o se guardan los dos o
+    // ninguno, y nadie ve la tarjeta con saldo 0 antes del movimiento.
+    public Mono<CashCard> create(String owner, BigDecimal amount) {
+        return cashCardRepository.save(new CashCard(null, amount.doubleValue(), owner))
+                .flatMap(saved -> (amount.signum() != 0
+                        ? insertEntry(saved.id(), amount, amount)
+                        : Mono.<Void>empty())
+                        .thenReturn(saved))
+                .as(transactionalOperator::transactional);
+    }
+
+    //Registra un movimiento: delta positivo es un CREDIT, negativo un DEBIT.
+    public Mono<Void> append(long cashCardId, BigDecimal delta) {
+        return write(cashCardId, current -> delta);
+    }
+
+    //Deja el saldo de la tarjeta en balance con un único movimiento por la diferencia con el saldo confirmado.
+    public Mono<Void> setBalance(long cashCardId, BigDecimal balance) {
+        return write(cashCardId, balance::subtract);
+    }
+
+    //Página de movimientos, del más reciente al más antiguo, con ID menor que before (paginación por clave).
+    public Flux<CashCardTransaction> findTransactions(long cashCardId, Long before, int size) {
+        return databaseClient.sql("SELECT ID, TYPE, AMOUNT, CREATED_AT FROM CASH_CARD_TRANSACTION " +
+                        "WHERE CASH_CARD_ID = :cashCardId AND ID < :before ORDER BY ID DESC LIMIT :size")
+                .bind("cashCardId", cashCardId)
+                .bind("before", before != null ? before : Long.MAX_VALUE)
+                .bind("size", size)
+                .map(row -> new Object[]{row.get("ID", Long.class), row.get("TYPE", String.class),
+                        row.get("AMOUNT", BigDecimal.class), row.get("CREATED_AT", LocalDateTime.class)})
+                .all()
+                .collectList()
+                .filter(rows -> !rows.isEmpty())
+                .flatMapMany(rows -> balanceAfter(cashCardId, (Long) rows.get(0)[0])
+                        .flatMapIterable(latest -> {
+                            List<CashCardTransaction> transactions = new ArrayList<>();
+                            BigDecimal balance = latest;
+                            for (Object[] row : rows) {
+                                String type = (String) row[1];
+                                BigDecimal amount = (BigDecimal) row[2];
+                                transactions.add(new CashCardTransaction((Long) row[0], type, amount.doubleValue(),
+                                        balance.doubleValue(), (LocalDateTime) row[3]));
+                                balance = "CREDIT".equals(type) ? balance.subtract(amount) : balance.add(amount);
+                            }
+                            return transactions;
+                        }));
+    }
+
+    //Saldo de la tarjeta justo después del movimiento transactionId: instantánea anterior más la cola.
+    public Mono<BigDecimal> balanceAfter(long cashCardId, long transactionId) {
+        return databaseClient.sql("SELECT TRANSACTION_ID, BALANCE FROM BALANCE_SNAPSHOT " +
+                        "WHERE CASH_CARD_ID = :cashCardId AND TRANSACTION_ID <= :transactionId " +
+                        "ORDER BY TRANSACTION_ID DESC LIMIT 1")
+                .bind("cashCardId", cashCardId)
+                .bind("transactionId", transactionId)
+                .map(row -> new Object[]{row.get("TRANSACTION_ID", Long.class), row.get("BALANCE", BigDecimal.class)})
+                .one()
+                .defaultIfEmpty(new Object[]{0L, BigDecimal.ZERO})
+                .flatMap(snapshot -> databaseClient.sql("SELECT COALESCE(SUM(" + SIGNED_AMOUNT + "), 0) AS TAIL " +
+                                "FROM CASH_CARD_TRANSACTION WHERE CASH_CARD_ID = :cashCardId " +
+                                "AND ID > :from AND ID <= :transactionId")
+                        .bind("cashCardId", cashCardId)
+                        .bind("from", snapshot[0])
+                        .bind("transactionId", transactionId)
+                        .map(row -> row.get("TAIL", BigDecimal.class))
+                        .one()
+                        .map(tail -> ((BigDecimal) snapshot[1]).add(tail)));
+    }
+
+    private Mono<Void> write(long cashCardId, UnaryOperator<BigDecimal> deltaFromCurrent) {
+        return databaseClient.sql("SELECT AMOUNT FROM CASH_CARD WHERE ID = :cashCardId FOR UPDATE")
+                .bind("cashCardId", cashCardId)
+                .map(row -> row.get("AMOUNT", BigDecimal.class))
+                .one()
+                .switchIfEmpty(Mono.error(() -> new IllegalArgumentException("La tarjeta " + cashCardId + " no existe")))
+                .flatMap(current -> {
+                    BigDecimal delta = deltaFromCurrent.apply(current);
+                    if (delta.signum() == 0) {
+                        return Mono.<Void>empty();
+                    }
+                    return databaseClient.sql("UPDATE CASH_CARD SET AMOUNT = :amount WHERE ID = :cashCardId")
+                            .bind("amount", current.add(delta))
+                            .bind("cashCardId", cashCardId)
+                            .then()
+                            .then(insertEntry(cashCardId, delta, current.add(delta)));
+                })
+                .as(transactionalOperator::transactional);
+    }
+
+    //Inserta el movimiento y, si la cola de la tarjeta llega a snapshot-interval, la instantánea con el saldo que queda.
+    // Se llama dentro de la transacción que tiene bloqueada (o acaba de crear) la fila de la tarjeta, así que el
+    // movimiento recién insertado es el último de la tarjeta.
+    private Mono<Void> insertEntry(long cashCardId, BigDecimal delta, BigDecimal balance) {
+        return databaseClient.sql("INSERT INTO CASH_CARD_TRANSACTION(CASH_CARD_ID, TYPE, AMOUNT) " +
+                        "VALUES (:cashCardId, :type, :amount)")
+                .bind("cashCardId", cashCardId)
+                .bind("type", delta.signum() > 0 ? "CREDIT" : "DEBIT")
+                .bind("amount", delta.abs())
+                .then()
+                .then(databaseClient.sql("SELECT COUNT(*) AS TAIL_COUNT, MAX(ID) AS LAST_ID FROM CASH_CARD_TRANSACTION " +
+                                "WHERE CASH_CARD_ID = :cashCardId AND ID > COALESCE((SELECT MAX(TRANSACTION_ID) " +
+                                "FROM BALANCE_SNAPSHOT WHERE CASH_CARD_ID = :cashCardId), 0)")
+                        .bind("cashCardId", cashCardId)
+                        .map(row -> new long[]{row.get("TAIL_COUNT", Long.class), row.get("LAST_ID", Long.class)})
+                        .one())
+                .filter(tail -> tail[0] >= snapshotInterval)
+                .flatMap(tail -> databaseClient.sql("INSERT INTO BALANCE_SNAPSHOT(CASH_CARD_ID, TRANSACTION_ID, BALANCE) " +
+                                "VALUES (:cashCardId, :transactionId, :balance)")
+                        .bind("cashCardId", cashCardId)
+                        .bind("transactionId", tail[1])
+                        .bind("balance", balance)
+                        .then());
+    }
+}
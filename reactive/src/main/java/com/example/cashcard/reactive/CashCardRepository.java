@@ -0,0 +1,19 @@
+package com.example.cashcard.reactive;
+
+import org.springframework.data.domain.Pageable;
+import org.springframework.data.repository.reactive.ReactiveCrudRepository;
+import reactor.core.publisher.Flux;
+import reactor.core.publisher.Mono;
+
+//Los mismos métodos que CashCardRepository en el proyecto principal, pero devuelven Mono/Flux: la consulta se lanza
+// al suscribirse y el hilo queda libre mientras R2DBC espera la respuesta de la base de datos.
+//
+//Con R2DBC no hay Page: el Pageable se traduce a LIMIT/OFFSET y ORDER BY y se devuelve el Flux de la página.
+public interface CashCardRepository extends ReactiveCrudRepository<CashCard, Long> {
+    Mono<CashCard> findByIdAndOwner(Long id, String owner);
+    Flux<CashCard> findByOwner(String owner, Pageable pageable);
+    Flux<CashCard> findByOwnerAndAmountBetween(String owner, Double minAmount, Double maxAmount, Pageable pageable);
+    Flux<CashCard> findByOwnerAndAmountGreaterThanEqual(String owner, Double minAmount, Pageable pageable);
+    Flux<CashCard> findByOwnerAndAmountLessThanEqual(String owner, Double maxAmount, Pageable pageable);
+    Mono<Boolean> existsByIdAndOwner(Long id, String owner);
+}
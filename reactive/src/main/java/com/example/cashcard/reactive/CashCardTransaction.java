@@ -0,0 +1,8 @@
+package com.example.cashcard.reactive;
+
+import java.time.LocalDateTime;
+
+//El mismo movimiento que CashCardTransaction en el proyecto principal, tal como lo devuelve
+// GET /cashcards/{id}/transactions.
+public record CashCardTransaction(Long id, String type, Double amount, Double balance, LocalDateTime createdAt) {
+}
@@ -0,0 +1,13 @@
+package com.example.cashcard.reactive;
+
+import org.springframework.boot.SpringApplication;
+import org.springframework.boot.autoconfigure.SpringBootApplication;
+
+@SpringBootApplication
+public class ReactiveCashCardApplication {
+
+	public static void main(String[] args) {
+		SpringApplication.run(ReactiveCashCardApplication.class, args);
+	}
+
+}
@@ -0,0 +1,56 @@
+package com.example.cashcard.reactive;
+
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.r2dbc.core.DatabaseClient;
+import org.springframework.security.config.web.server.ServerHttpSecurity;
+import org.springframework.security.core.userdetails.ReactiveUserDetailsService;
+import org.springframework.security.core.userdetails.User;
+import org.springframework.security.crypto.bcrypt.BCryptPasswordEncoder;
+import org.springframework.security.crypto.password.PasswordEncoder;
+import org.springframework.security.web.server.SecurityWebFilterChain;
+
+@Configuration
+public class SecurityConfig {
+
+    //Las mismas reglas que en el proyecto principal, con la API reactiva de Spring Security:
+    // Basic Authentication, rol CARD-OWNER para /cashcards/** y sin CSRF.
+    @Bean
+    public SecurityWebFilterChain filterChain(ServerHttpSecurity http) {
+        http.authorizeExchange()
+                .pathMatchers("/cashcards/**")
+                .hasRole("CARD-OWNER")
+                .and()
+                .csrf().disable()
+                .httpBasic();
+        return http.build();
+    }
+
+    @Bean
+    public PasswordEncoder passwordEncoder() {
+        return new BCryptPasswordEncoder();
+    }
+
+    //Usuarios y roles de las tablas USERS y ROLES, leídos con R2DBC para no bloquear el event loop.
+    @Bean
+    public ReactiveUserDetailsService cardholderUsers(DatabaseClient databaseClient) {
+        return username -> databaseClient
+                .sql("SELECT u.USERNAME, u.PASSWORD, u.ENABLED, r.ROLE FROM USERS u " +
+                        "LEFT JOIN ROLES r ON r.USERNAME = u.USERNAME WHERE u.USERNAME = :username")
+                .bind("username", username)
+                .map(row -> new Object[]{row.get("PASSWORD", String.class),
+                        row.get("ENABLED", Boolean.class),
+                        row.get("ROLE", String.class)})
+                .all()
+                .collectList()
+                .filter(rows -> !rows.isEmpty())
+                .map(rows -> User.withUsername(username)
+                        .password((String) rows.get(0)[0])
+                        .disabled(!(Boolean) rows.get(0)[1])
+                        .authorities(rows.stream()
+                                .map(row -> (String) row[2])
+                                .filter(role -> role != null)
+                                .toArray(String[]::new))
+                        .build());
+    }
+}
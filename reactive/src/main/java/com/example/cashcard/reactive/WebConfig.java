@@ -0,0 +1,17 @@
+package com.example.cashcard.reactive;
+
+import org.springframework.context.annotation.Configuration;
+import org.springframework.data.web.ReactivePageableHandlerMethodArgumentResolver;
+import org.springframework.web.reactive.config.WebFluxConfigurer;
+import org.springframework.web.reactive.result.method.annotation.ArgumentResolverConfigurer;
+
+//Spring Boot sólo registra el soporte de Pageable (page, size, sort) para Spring MVC.
+// En WebFlux lo añadimos nosotros para que /cashcards?page=0&size=1&sort=amount,desc funcione igual.
+@Configuration
+public class WebConfig implements WebFluxConfigurer {
+
+    @Override
+    public void configureArgumentResolvers(ArgumentResolverConfigurer configurer) {
+        configurer.addCustomResolver(new ReactivePageableHandlerMethodArgumentResolver());
+    }
+}
@@ -0,0 +1,189 @@
+package com.example.cashcard.reactive;
+
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.test.annotation.DirtiesContext;
+import org.springframework.test.web.reactive.server.WebTestClient;
+
+import java.net.URI;
+
+/*
+ * Las mismas comprobaciones que CashCardApplicationTests en el proyecto principal, con WebTestClient.
+ * Ambas variantes comparten schema.sql y data.sql, así que deben devolver exactamente lo mismo.
+ */
+@SpringBootTest(webEnvironment = SpringBootTest.WebEnvironment.RANDOM_PORT)
+@DirtiesContext(classMode = DirtiesContext.ClassMode.AFTER_EACH_TEST_METHOD)
+class ReactiveCashCardApplicationTests {
+
+	@Autowired
+	WebTestClient webTestClient;
+
+	private WebTestClient sarah() {
+		return webTestClient.mutate()
+				.defaultHeaders(headers -> headers.setBasicAuth("sarah1", "abc123"))
+				.build();
+	}
+
+	@Test
+	void shouldReturnACashCardWhenDataIsSaved() {
+		sarah().get().uri("/cashcards/99")
+				.exchange()
+				.expectStatus().isOk()
+				.expectBody()
+				.jsonPath("$.id").isEqualTo(99)
+				.jsonPath("$.amount").isEqualTo(123.45);
+	}
+
+	@Test
+	void shouldNotReturnACashCardWithAnUnknownId() {
+		sarah().get().uri("/cashcards/1000")
+				.exchange()
+				.expectStatus().isNotFound()
+				.expectBody().isEmpty();
+	}
+
+	@Test
+	void shouldCreateANewCashCard() {
+		URI locationOfNewCashCard = sarah().post().uri("/cashcards")
+				.bodyValue(new CashCard(null, 250.00, "sarah1"))
+				.exchange()
+				.expectStatus().isCreated()
+				.returnResult(Void.class)
+				.getResponseHeaders().getLocation();
+
+		sarah().get().uri(locationOfNewCashCard)
+				.exchange()
+				.expectStatus().isOk()
+				.expectBody()
+				.jsonPath("$.id").isNotEmpty()
+				.jsonPath("$.amount").isEqualTo(250.00);
+	}
+
+	@Test
+	void shouldReturnASortedPageOfCashCardsWithNoParametersAndUseDefaultValues() {
+		sarah().get().uri("/cashcards")
+				.exchange()
+				.expectStatus().isOk()
+				.expectBody()
+				.jsonPath("$.length()").isEqualTo(3)
+				.jsonPath("$[0].amount").isEqualTo(1.00)
+				.jsonPath("$[1].amount").isEqualTo(123.45)
+				.jsonPath("$[2].amount").isEqualTo(150.00);
+	}
+
+	@Test
+	void shouldReturnASortedPageOfCashCards() {
+		sarah().get().uri("/cashcards?page=0&size=1&sort=amount,desc")
+				.exchange()
+				.expectStatus().isOk()
+				.expectBody()
+				.jsonPath("$.length()").isEqualTo(1)
+				.jsonPath("$[0].amount").isEqualTo(150.00);
+	}
+
+	@Test
+	void shouldReturnCashCardsWithinAnAmountRange() {
+		sarah().get().uri("/cashcards?minAmount=100&maxAmount=200")
+				.exchange()
+				.expectStatus().isOk()
+				.expectBody()
+				.jsonPath("$.length()").isEqualTo(2)
+				.jsonPath("$[0].amount").isEqualTo(123.45)
+				.jsonPath("$[1].amount").isEqualTo(150.00);
+	}
+
+	@Test
+	void shouldRejectAnInvertedAmountRange() {
+		sarah().get().uri("/cashcards?minAmount=200&maxAmount=100")
+				.exchange()
+				.expectStatus().isBadRequest();
+	}
+
+	@Test
+	void shouldNotReturnACashCardWhenUsingBadCredentials() {
+		webTestClient.get().uri("/cashcards/99")
+				.headers(headers -> headers.setBasicAuth("sarah1", "BAD-PASSWORD"))
+				.exchange()
+				.expectStatus().isUnauthorized();
+	}
+
+	@Test
+	void shouldRejectUsersWhoAreNotCardOwners() {
+		webTestClient.get().uri("/cashcards/99")
+				.headers(headers -> headers.setBasicAuth("hank-owns-no-cards", "qrs456"))
+				.exchange()
+				.expectStatus().isForbidden();
+	}
+
+	@Test
+	void shouldNotAllowAccessToCashCardsTheyDoNotOwn() {
+		sarah().get().uri("/cashcards/102")
+				.exchange()
+				.expectStatus().isNotFound();
+	}
+
+	@Test
+	void shouldUpdateAnExistingCashCard() {
+		sarah().put().uri("/cashcards/99")
+				.bodyValue(new CashCard(null, 19.99, null))
+				.exchange()
+				.expectStatus().isNoContent();
+
+		sarah().get().uri("/cashcards/99")
+				.exchange()
+				.expectStatus().isOk()
+				.expectBody()
+				.jsonPath("$.amount").isEqualTo(19.99);
+	}
+
+	@Test
+	void shouldRecordLedgerTransactionsWhenACashCardIsUpdated() {
+		sarah().put().uri("/cashcards/99")
+				.bodyValue(new CashCard(null, 100.00, null))
+				.exchange()
+				.expectStatus().isNoContent();
+
+		sarah().get().uri("/cashcards/99/transactions")
+				.exchange()
+				.expectStatus().isOk()
+				.expectBody()
+				.jsonPath("$.length()").isEqualTo(2)
+				.jsonPath("$[0].type").isEqualTo("DEBIT")
+				.jsonPath("$[0].amount").isEqualTo(23.45)
+				.jsonPath("$[0].balance").isEqualTo(100.00)
+				.jsonPath("$[1].type").isEqualTo("CREDIT")
+				.jsonPath("$[1].balance").isEqualTo(123.45);
+	}
+
+	@Test
+	void shouldNotUpdateACashCardThatDoesNotExist() {
+		sarah().put().uri("/cashcards/99999")
+				.bodyValue(new CashCard(null, 19.99, null))
+				.exchange()
+				.expectStatus().isNotFound();
+	}
+
+	@Test
+	void shouldDeleteAnExistingCashCard() {
+		sarah().delete().uri("/cashcards/99")
+				.exchange()
+				.expectStatus().isNoContent();
+
+		sarah().get().uri("/cashcards/99")
+				.exchange()
+				.expectStatus().isNotFound();
+	}
+
+	@Test
+	void shouldNotAllowDeletionOfCashCardsTheyDoNotOwn() {
+		sarah().delete().uri("/cashcards/102")
+				.exchange()
+				.expectStatus().isNotFound();
+
+		webTestClient.get().uri("/cashcards/102")
+				.headers(headers -> headers.setBasicAuth("kumar2", "xyz789"))
+				.exchange()
+				.expectStatus().isOk();
+	}
+}
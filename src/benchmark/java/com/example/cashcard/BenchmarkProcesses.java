@@ -0,0 +1,56 @@
+package com.example.cashcard;
+
+import java.io.IOException;
+import java.net.InetSocketAddress;
+import java.net.ServerSocket;
+import java.net.Socket;
+import java.time.Duration;
+import java.util.concurrent.TimeUnit;
+
+//Utilidades comunes de los benchmarks que arrancan la aplicación en otro proceso (StartupBenchmark,
+// WorkloadGenerator, ConcurrencyComparison): elegir un puerto libre, esperar a que el proceso lo abra y pararlo.
+final class BenchmarkProcesses {
+
+    private BenchmarkProcesses() {
+    }
+
+    //Puerto libre en este momento. Otro proceso podría ocuparlo antes de que la aplicación lo abra, pero evita
+    // chocar con un puerto fijo que ya esté en uso o, peor, medir otro servidor.
+    static int freePort() throws IOException {
+        try (ServerSocket socket = new ServerSocket(0)) {
+            return socket.getLocalPort();
+        }
+    }
+
+    static boolean portOpen(int port) {
+        try (Socket socket = new Socket()) {
+            socket.connect(new InetSocketAddress("localhost", port), 50);
+            return true;
+        } catch (IOException e) {
+            return false;
+        }
+    }
+
+    //Espera a que el proceso abra el puerto; falla si el proceso termina antes o si se agota el tiempo.
+    static void awaitPort(Process process, int port, Duration timeout) throws InterruptedException {
+        long deadline = System.nanoTime() + timeout.toNanos();
+        while (System.nanoTime() < deadline) {
+            if (!process.isAlive()) {
+                throw new IllegalStateException("El proceso terminó con código " + process.exitValue());
+            }
+            if (portOpen(port)) {
+                return;
+            }
+            Thread.sleep(50);
+        }
+        throw new IllegalStateException("La aplicación no abrió el puerto " + port);
+    }
+
+    //SIGTERM y, si no termina a tiempo, SIGKILL.
+    static void stop(Process process, Duration timeout) throws InterruptedException {
+        process.destroy();
+        if (!process.waitFor(timeout.toSeconds(), TimeUnit.SECONDS)) {
+            process.destroyForcibly().waitFor();
+        }
+    }
+}
@@ -0,0 +1,176 @@
+package com.example.cashcard;
+
+import org.springframework.security.crypto.bcrypt.BCryptPasswordEncoder;
+
+import java.io.IOException;
+import java.net.URI;
+import java.net.http.HttpClient;
+import java.net.http.HttpRequest;
+import java.net.http.HttpResponse;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.Base64;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.LongAdder;
+
+//Compara la variante bloqueante (Spring MVC + Spring Data JDBC) con la reactiva (WebFlux + R2DBC) bajo mucha
+// concurrencia.
+//
+//Uso: ConcurrencyComparison <directorio de trabajo>
+//Propiedades de sistema (las pone la tarea concurrencyComparison de Gradle):
+//  comparison.mvc.classpath, comparison.reactive.classpath  classpath de cada aplicación, con su driver de H2.
+//  comparison.concurrency                                  niveles de concurrencia, separados por comas.
+//  comparison.duration                                     duración de cada nivel (ISO-8601).
+//
+//Cada variante se arranca en su propio proceso con el mismo -Xmx. Para cada nivel de concurrencia N se abren N
+// clientes en bucle cerrado (cada uno envía la siguiente petición al recibir la anterior) contra GET /cashcards/{id}
+// y se mide:
+//
+//rendimiento: peticiones completadas por segundo.
+//memoria por conexión: (RSS máximo durante la carga - RSS en reposo) / N, leído de /proc/<pid>/status (sólo Linux).
+//hilos: número máximo de hilos del proceso durante la carga. En MVC cada petición en curso ocupa un hilo de Tomcat;
+// en WebFlux el número de hilos no depende de N.
+//
+//Para comparar lo mismo, la variante MVC se arranca con la caché de UserDetails (CaffeineUserCache) desactivada:
+// las dos consultan USERS y ROLES en cada petición, una con JDBC y la otra con R2DBC.
+public class ConcurrencyComparison {
+
+    private static final String USERNAME = "concurrency";
+    private static final String PASSWORD = "concurrency";
+    private static final long CARD_ID = 1000;
+
+    public static void main(String[] args) throws Exception {
+        Path workDir = Files.createDirectories(Path.of(args.length > 0 ? args[0] : "build/concurrency"));
+        Path data = writeDataScript(workDir);
+        Duration duration = Duration.parse(System.getProperty("comparison.duration", "PT20S"));
+        List<Integer> levels = new ArrayList<>();
+        for (String level : System.getProperty("comparison.concurrency", "100,1000,4000").split(",")) {
+            levels.add(Integer.parseInt(level.trim()));
+        }
+
+        System.out.println("Autenticación: USERS/ROLES en cada petición en las dos variantes (caché de UserDetails de MVC desactivada).");
+        System.out.printf("%-9s %8s %12s %14s %12s %8s %8s%n",
+                "variante", "clientes", "peticiones/s", "KB/conexión", "RSS máx MB", "hilos", "errores");
+        run("mvc", System.getProperty("comparison.mvc.classpath"),
+                "com.example.cashcard.CashCardApplication", data, levels, duration,
+                List.of("--cashcard.security.user-cache.maximum-size=0",
+                        "--cashcard.security.user-cache.time-to-live=0s"));
+        run("reactive", System.getProperty("comparison.reactive.classpath"),
+                "com.example.cashcard.reactive.ReactiveCashCardApplication", data, levels, duration, List.of());
+    }
+
+    // Usuario con BCrypt de coste 4: con el coste por defecto sólo mediríamos BCrypt, igual en las dos variantes.
+    private static Path writeDataScript(Path workDir) throws IOException {
+        String hash = new BCryptPasswordEncoder(4).encode(PASSWORD);
+        Path data = workDir.resolve("concurrency-data.sql");
+        Files.writeString(data, String.join("\n",
+                "INSERT INTO USERS(USERNAME, PASSWORD, ENABLED) VALUES ('" + USERNAME + "', '" + hash + "', TRUE);",
+                "INSERT INTO ROLES(USERNAME, ROLE) VALUES ('" + USERNAME + "', 'ROLE_CARD-OWNER');",
+                "INSERT INTO CASH_CARD(ID, AMOUNT, OWNER) VALUES (" + CARD_ID + ", 10.00, '" + USERNAME + "');",
+                "INSERT INTO CASH_CARD_TRANSACTION(CASH_CARD_ID, TYPE, AMOUNT) VALUES (" + CARD_ID + ", 'CREDIT', 10.00);"));
+        return data;
+    }
+
+    private static void run(String name, String classpath, String mainClass, Path data,
+                            List<Integer> levels, Duration duration, List<String> extraArgs) throws Exception {
+        String java = ProcessHandle.current().info().command().orElse("java");
+        int port = BenchmarkProcesses.freePort();
+        List<String> command = new ArrayList<>(List.of(java, "-Xmx512m", "-cp", classpath, mainClass,
+                "--server.port=" + port,
+                "--spring.sql.init.schema-locations=file:src/test/resources/schema.sql",
+                "--spring.sql.init.data-locations=file:" + data.toAbsolutePath(),
+                "--logging.level.root=WARN"));
+        command.addAll(extraArgs);
+        Process process = new ProcessBuilder(command)
+                .redirectErrorStream(true)
+                .redirectOutput(ProcessBuilder.Redirect.DISCARD)
+                .start();
+        try {
+            BenchmarkProcesses.awaitPort(process, port, Duration.ofSeconds(120));
+            for (int clients : levels) {
+                // Reposo entre niveles: que el GC y las conexiones del nivel anterior no cuenten en este.
+                Thread.sleep(2_000);
+                long idleRss = procStatus(process.pid(), "VmRSS:");
+                Result result = load(process.pid(), port, clients, duration);
+                System.out.printf("%-9s %8d %,12.0f %,14.1f %,12.1f %8d %8d%n",
+                        name, clients,
+                        result.completed / (double) duration.toSeconds(),
+                        Math.max(0, result.peakRss - idleRss) / (double) clients,
+                        result.peakRss / 1024.0,
+                        result.peakThreads,
+                        result.errors);
+            }
+        } finally {
+            BenchmarkProcesses.stop(process, Duration.ofSeconds(30));
+        }
+    }
+
+    private record Result(long completed, long errors, long peakRss, long peakThreads) {
+    }
+
+    private static Result load(long pid, int port, int clients, Duration duration) throws Exception {
+        ExecutorService executor = Executors.newFixedThreadPool(Runtime.getRuntime().availableProcessors());
+        HttpClient client = HttpClient.newBuilder().executor(executor).build();
+        HttpRequest request = HttpRequest.newBuilder(URI.create("http://localhost:" + port + "/cashcards/" + CARD_ID))
+                .header("Authorization", "Basic " + Base64.getEncoder()
+                        .encodeToString((USERNAME + ":" + PASSWORD).getBytes(StandardCharsets.UTF_8)))
+                .timeout(Duration.ofSeconds(60))
+                .build();
+
+        LongAdder completed = new LongAdder();
+        LongAdder errors = new LongAdder();
+        AtomicLong peakRss = new AtomicLong();
+        AtomicLong peakThreads = new AtomicLong();
+        long deadline = System.nanoTime() + duration.toNanos();
+
+        List<CompletableFuture<Void>> users = new ArrayList<>();
+        for (int i = 0; i < clients; i++) {
+            CompletableFuture<Void> done = new CompletableFuture<>();
+            loop(client, request, deadline, completed, errors, done);
+            users.add(done);
+        }
+        while (System.nanoTime() < deadline) {
+            peakRss.accumulateAndGet(procStatus(pid, "VmRSS:"), Math::max);
+            peakThreads.accumulateAndGet(procStatus(pid, "Threads:"), Math::max);
+            Thread.sleep(100);
+        }
+        CompletableFuture.allOf(users.toArray(new CompletableFuture[0])).join();
+        executor.shutdownNow();
+        return new Result(completed.sum(), errors.sum(), peakRss.get(), peakThreads.get());
+    }
+
+    private static void loop(HttpClient client, HttpRequest request, long deadline,
+                             LongAdder completed, LongAdder errors, CompletableFuture<Void> done) {
+        if (System.nanoTime() >= deadline) {
+            done.complete(null);
+            return;
+        }
+        client.sendAsync(request, HttpResponse.BodyHandlers.discarding())
+                .whenComplete((response, error) -> {
+                    if (error == null && response.statusCode() == 200) {
+                        completed.increment();
+                    } else {
+                        errors.increment();
+                    }
+                    loop(client, request, deadline, completed, errors, done);
+                });
+    }
+
+    // Valor numérico de una línea de /proc/<pid>/status (VmRSS en KB, Threads en unidades).
+    private static long procStatus(long pid, String field) throws IOException {
+        for (String line : Files.readAllLines(Path.of("/proc/" + pid + "/status"))) {
+            if (line.startsWith(field)) {
+                return Long.parseLong(line.substring(field.length()).trim().split("\\s+")[0]);
+            }
+        }
+        throw new IllegalStateException(field + " no encontrado para el proceso " + pid);
+    }
+
+}
@@ -0,0 +1,111 @@
+package com.example.cashcard;
+
+import java.io.IOException;
+import java.net.URI;
+import java.net.http.HttpClient;
+import java.net.http.HttpRequest;
+import java.net.http.HttpResponse;
+import java.nio.charset.StandardCharsets;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Base64;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+//Mide cuánto tarda una instancia de CashCardApplication en estar disponible.
+//
+//Uso: StartupBenchmark <modo> <ejecuciones> <puerto> <comando...>
+//
+//Por cada ejecución lanza el comando en un proceso nuevo y toma dos tiempos desde el arranque del proceso:
+//
+//arranque: el puerto HTTP acepta conexiones.
+//primera petición: GET /cashcards autenticado devuelve 200 OK. Incluye la inicialización perezosa que
+// queda pendiente después de abrir el puerto (DispatcherServlet, cadena de filtros de seguridad, primera consulta).
+//
+//Después se para el proceso con SIGTERM, que es también lo que provoca el volcado del archivo CDS en la
+// ejecución de entrenamiento (-XX:ArchiveClassesAtExit).
+public class StartupBenchmark {
+
+    private static final Duration TIMEOUT = Duration.ofSeconds(120);
+    private static final String CREDENTIALS = "sarah1:abc123";
+
+    public static void main(String[] args) throws Exception {
+        if (args.length < 4) {
+            System.err.println("Uso: StartupBenchmark <modo> <ejecuciones> <puerto> <comando...>");
+            System.exit(2);
+        }
+        String mode = args[0];
+        int runs = Integer.parseInt(args[1]);
+        int port = Integer.parseInt(args[2]);
+        List<String> command = Arrays.asList(args).subList(3, args.length);
+
+        List<Long> startupMillis = new ArrayList<>();
+        List<Long> firstRequestMillis = new ArrayList<>();
+        for (int run = 0; run < runs; run++) {
+            long[] sample = measure(command, port);
+            startupMillis.add(sample[0]);
+            firstRequestMillis.add(sample[1]);
+        }
+
+        System.out.printf("%-12s runs=%d  arranque(ms) %s  primera petición(ms) %s%n",
+                mode, runs, summary(startupMillis), summary(firstRequestMillis));
+    }
+
+    private static long[] measure(List<String> command, int port) throws Exception {
+        HttpClient client = HttpClient.newHttpClient();
+        HttpRequest request = HttpRequest.newBuilder(URI.create("http://localhost:" + port + "/cashcards"))
+                .header("Authorization", "Basic " + Base64.getEncoder()
+                        .encodeToString(CREDENTIALS.getBytes(StandardCharsets.UTF_8)))
+                .GET()
+                .build();
+
+        long start = System.nanoTime();
+        Process process = new ProcessBuilder(command)
+                .redirectErrorStream(true)
+                .redirectOutput(ProcessBuilder.Redirect.DISCARD)
+                .start();
+        try {
+            while (!BenchmarkProcesses.portOpen(port)) {
+                checkAlive(process, start);
+                Thread.sleep(5);
+            }
+            long startup = System.nanoTime() - start;
+
+            while (true) {
+                checkAlive(process, start);
+                try {
+                    HttpResponse<Void> response = client.send(request, HttpResponse.BodyHandlers.discarding());
+                    if (response.statusCode() == 200) {
+                        break;
+                    }
+                } catch (IOException e) {
+                    // El puerto ya está abierto pero el conector todavía no atiende; se reintenta.
+                }
+                Thread.sleep(5);
+            }
+            long firstRequest = System.nanoTime() - start;
+
+            return new long[]{TimeUnit.NANOSECONDS.toMillis(startup), TimeUnit.NANOSECONDS.toMillis(firstRequest)};
+        } finally {
+            BenchmarkProcesses.stop(process, TIMEOUT);
+        }
+    }
+
+    private static void checkAlive(Process process, long start) {
+        if (!process.isAlive()) {
+            throw new IllegalStateException("El proceso terminó con código " + process.exitValue());
+        }
+        if (System.nanoTime() - start > TIMEOUT.toNanos()) {
+            throw new IllegalStateException("La aplicación no respondió en " + TIMEOUT.toSeconds() + " s");
+        }
+    }
+
+    private static String summary(List<Long> samples) {
+        List<Long> sorted = new ArrayList<>(samples);
+        Collections.sort(sorted);
+        return String.format("min=%d mediana=%d max=%d",
+                sorted.get(0), sorted.get(sorted.size() / 2), sorted.get(sorted.size() - 1));
+    }
+}
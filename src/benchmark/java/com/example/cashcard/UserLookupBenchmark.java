@@ -0,0 +1,106 @@
+package com.example.cashcard;
+
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.jdbc.datasource.embedded.EmbeddedDatabase;
+import org.springframework.jdbc.datasource.embedded.EmbeddedDatabaseBuilder;
+import org.springframework.jdbc.datasource.embedded.EmbeddedDatabaseType;
+import org.springframework.security.core.userdetails.cache.NullUserCache;
+
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.SplittableRandom;
+
+//Mide loadUserByUsername con muchos usuarios en las tablas USERS y ROLES.
+//
+//Uso: UserLookupBenchmark [usuarios]
+//
+//Carga los usuarios en H2 (con el mismo hash BCrypt para todos; aquí no medimos BCrypt) y hace las mismas búsquedas
+// sobre CachingJdbcUserDetailsManager con NullUserCache (una consulta por búsqueda) y con CaffeineUserCache.
+//
+//Las búsquedas están sesgadas como el tráfico real: el 90% va a un conjunto caliente de 1.000 usuarios y el resto
+// se reparte entre todos.
+public class UserLookupBenchmark {
+
+    private static final String PASSWORD_HASH = "$2a$10$Pne1XSnmq4oyELc0N50B2.5nEJE.c4RxiWhPVE1fYMGD4Xei3ZeS2";
+    private static final int HOT_USERS = 1_000;
+    private static final int LOOKUPS = 500_000;
+    private static final int BATCH_SIZE = 10_000;
+
+    public static void main(String[] args) throws Exception {
+        int userCount = args.length > 0 ? Integer.parseInt(args[0]) : 1_000_000;
+
+        EmbeddedDatabase dataSource = new EmbeddedDatabaseBuilder()
+                .setType(EmbeddedDatabaseType.H2)
+                .generateUniqueName(true)
+                .addScript("file:src/test/resources/schema.sql")
+                .build();
+        try {
+            long start = System.nanoTime();
+            seedUsers(new JdbcTemplate(dataSource), userCount);
+            System.out.printf("%d usuarios cargados en %d ms%n", userCount, (System.nanoTime() - start) / 1_000_000);
+
+            String[] usernames = lookupSequence(userCount);
+            run("sin caché", new CachingJdbcUserDetailsManager(dataSource, new NullUserCache()), usernames);
+            run("caffeine", new CachingJdbcUserDetailsManager(dataSource,
+                    new CaffeineUserCache(100_000, Duration.ofMinutes(5))), usernames);
+        } finally {
+            dataSource.shutdown();
+        }
+    }
+
+    private static void seedUsers(JdbcTemplate jdbcTemplate, int userCount) {
+        for (int from = 0; from < userCount; from += BATCH_SIZE) {
+            List<Object[]> users = new ArrayList<>();
+            List<Object[]> roles = new ArrayList<>();
+            for (int i = from; i < Math.min(from + BATCH_SIZE, userCount); i++) {
+                users.add(new Object[]{username(i), PASSWORD_HASH});
+                roles.add(new Object[]{username(i), "ROLE_CARD-OWNER"});
+            }
+            jdbcTemplate.batchUpdate("INSERT INTO USERS(USERNAME, PASSWORD, ENABLED) VALUES (?, ?, TRUE)", users);
+            jdbcTemplate.batchUpdate("INSERT INTO ROLES(USERNAME, ROLE) VALUES (?, ?)", roles);
+        }
+    }
+
+    private static String[] lookupSequence(int userCount) {
+        SplittableRandom random = new SplittableRandom(42);
+        String[] usernames = new String[LOOKUPS];
+        for (int i = 0; i < LOOKUPS; i++) {
+            int user = random.nextInt(10) < 9
+                    ? random.nextInt(Math.min(HOT_USERS, userCount))
+                    : random.nextInt(userCount);
+            usernames[i] = username(user);
+        }
+        return usernames;
+    }
+
+    private static void run(String name, CachingJdbcUserDetailsManager users, String[] usernames) throws Exception {
+        users.afterPropertiesSet();
+        // Calentamiento: JIT y, en el caso con caché, el conjunto caliente.
+        for (int i = 0; i < usernames.length / 10; i++) {
+            users.loadUserByUsername(usernames[i]);
+        }
+
+        long[] latencies = new long[usernames.length];
+        long start = System.nanoTime();
+        for (int i = 0; i < usernames.length; i++) {
+            long t0 = System.nanoTime();
+            users.loadUserByUsername(usernames[i]);
+            latencies[i] = System.nanoTime() - t0;
+        }
+        long elapsed = System.nanoTime() - start;
+
+        Arrays.sort(latencies);
+        System.out.printf("%-10s %,12.0f búsquedas/s  p50=%,d ns  p99=%,d ns  p99.9=%,d ns%n",
+                name,
+                usernames.length / (elapsed / 1e9),
+                latencies[latencies.length / 2],
+                latencies[(int) (latencies.length * 0.99)],
+                latencies[(int) (latencies.length * 0.999)]);
+    }
+
+    private static String username(int i) {
+        return "user" + i;
+    }
+}
@@ -0,0 +1,359 @@
+package com.example.cashcard;
+
+import org.HdrHistogram.ConcurrentHistogram;
+import org.HdrHistogram.Histogram;
+import org.springframework.security.crypto.bcrypt.BCryptPasswordEncoder;
+
+import java.io.BufferedWriter;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.PrintStream;
+import java.net.URI;
+import java.net.http.HttpClient;
+import java.net.http.HttpRequest;
+import java.net.http.HttpResponse;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.Base64;
+import java.util.EnumMap;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.Properties;
+import java.util.Queue;
+import java.util.SplittableRandom;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.concurrent.locks.LockSupport;
+
+//Generador de carga sintética para la API de CashCard.
+//
+//Uso: WorkloadGenerator <directorio de salida>
+//
+//1. Genera un script de datos con workload.owners propietarios y workload.cards tarjetas, repartidas entre los
+// propietarios con una distribución de Zipf: unos pocos propietarios concentran la mayoría de tarjetas, como en
+// producción.
+//2. Arranca CashCardApplication en otro proceso (classpath en workload.server.classpath, heap workload.server.heap)
+// con H2, schema.sql de src/test/resources y ese script. Así las pausas de GC y los hilos del generador no comparten
+// heap ni CPU con el servidor que se mide, igual que en ConcurrencyComparison.
+//3. Lanza workload.rate peticiones por segundo contra todos los endpoints de CashCardController según workload.mix.
+//4. Escribe un histograma de latencias por operación (HdrHistogram) y compara su p99 con workload.slo.p99.*.
+// Sólo las respuestas correctas entran en el histograma: un error rápido no puede mejorar el p99. Los errores se
+// cuentan aparte y su proporción no puede superar workload.slo.max-error-rate.
+// Si algún SLO no se cumple, termina con código 1 y la tarea de Gradle falla.
+//
+//Planificación en bucle abierto: la petición i tiene una hora prevista, inicio + i / rate, y se envía de forma
+// asíncrona a esa hora aunque las anteriores no hayan respondido. La latencia se mide desde la hora prevista, no
+// desde el envío real, así que si el servidor (o el propio generador) se atasca, el retraso acumulado aparece en el
+// histograma en lugar de quedar oculto (coordinated omission).
+//
+//Todos los propietarios comparten la contraseña "workload", cifrada con BCrypt de coste 4: con el coste por defecto
+// cada petición gastaría decenas de milisegundos en BCrypt y eso es lo único que mediríamos.
+public class WorkloadGenerator {
+
+    enum Operation {
+        findById, findAll, findAllByAmount, findTransactions, create, update, delete
+    }
+
+    private static final String PASSWORD = "workload";
+    private static final long HIGHEST_TRACKABLE_MICROS = TimeUnit.SECONDS.toMicros(60);
+
+    private final Properties config;
+    private final HttpClient client;
+    private final String baseUrl;
+    private final int[] ownerOfCard;
+    private final ZipfSampler owners;
+    private final Queue<long[]> createdCards = new ConcurrentLinkedQueue<>();
+    private final Map<Operation, Histogram> histograms = new EnumMap<>(Operation.class);
+    private final Map<Operation, LongAdder> errors = new EnumMap<>(Operation.class);
+
+    WorkloadGenerator(Properties config, HttpClient client, String baseUrl, int[] ownerOfCard, ZipfSampler owners) {
+        this.config = config;
+        this.client = client;
+        this.baseUrl = baseUrl;
+        this.ownerOfCard = ownerOfCard;
+        this.owners = owners;
+        for (Operation operation : Operation.values()) {
+            histograms.put(operation, new ConcurrentHistogram(HIGHEST_TRACKABLE_MICROS, 3));
+            errors.put(operation, new LongAdder());
+        }
+    }
+
+    public static void main(String[] args) throws Exception {
+        Path outputDir = Path.of(args.length > 0 ? args[0] : "build/workload");
+        Properties config = loadConfig();
+        int ownerCount = intValue(config, "workload.owners");
+        int cardCount = intValue(config, "workload.cards");
+        ZipfSampler owners = new ZipfSampler(ownerCount, Double.parseDouble(config.getProperty("workload.zipf-exponent")));
+
+        Files.createDirectories(outputDir);
+        Path data = outputDir.resolve("workload-data.sql");
+        int[] ownerOfCard = seed(data, ownerCount, cardCount, owners);
+        int port = BenchmarkProcesses.freePort();
+        String java = ProcessHandle.current().info().command().orElse("java");
+        Process server = new ProcessBuilder(java, "-Xmx" + config.getProperty("workload.server.heap"),
+                "-cp", System.getProperty("workload.server.classpath"),
+                "com.example.cashcard.CashCardApplication",
+                "--server.port=" + port,
+                "--spring.sql.init.schema-locations=file:src/test/resources/schema.sql",
+                "--spring.sql.init.data-locations=file:" + data.toAbsolutePath(),
+                "--logging.level.root=WARN")
+                .redirectErrorStream(true)
+                .redirectOutput(outputDir.resolve("server.log").toFile())
+                .start();
+        ExecutorService executor = Executors.newFixedThreadPool(Runtime.getRuntime().availableProcessors());
+        boolean passed;
+        try {
+            BenchmarkProcesses.awaitPort(server, port, Duration.ofSeconds(300));
+            String baseUrl = "http://localhost:" + port;
+            HttpClient client = HttpClient.newBuilder()
+                    .executor(executor)
+                    .connectTimeout(Duration.ofSeconds(10))
+                    .build();
+
+            WorkloadGenerator generator = new WorkloadGenerator(config, client, baseUrl, ownerOfCard, owners);
+            generator.run();
+            passed = generator.report(outputDir);
+        } finally {
+            executor.shutdownNow();
+            BenchmarkProcesses.stop(server, Duration.ofSeconds(30));
+        }
+        // Fuera del try: System.exit no ejecuta el finally y dejaría vivo el proceso del servidor.
+        System.exit(passed ? 0 : 1);
+    }
+
+    //Escribe el script de datos que carga el servidor al arrancar, con INSERT de varias filas para que H2 lo procese
+    // rápido. Devuelve el propietario de cada tarjeta sembrada.
+    static int[] seed(Path data, int ownerCount, int cardCount, ZipfSampler owners) throws IOException {
+        String passwordHash = new BCryptPasswordEncoder(4).encode(PASSWORD);
+        SplittableRandom random = new SplittableRandom(42);
+        int[] ownerOfCard = new int[cardCount];
+        try (BufferedWriter out = Files.newBufferedWriter(data)) {
+            for (int owner = 0; owner < ownerCount; owner++) {
+                out.write(values(owner, "INSERT INTO USERS(USERNAME, PASSWORD, ENABLED) VALUES ",
+                        "('" + owner(owner) + "', '" + passwordHash + "', TRUE)", ownerCount));
+            }
+            for (int owner = 0; owner < ownerCount; owner++) {
+                out.write(values(owner, "INSERT INTO ROLES(USERNAME, ROLE) VALUES ",
+                        "('" + owner(owner) + "', 'ROLE_CARD-OWNER')", ownerCount));
+            }
+
+            // Los IDs de las tarjetas sembradas son 1..cardCount, así ownerOfCard[id - 1] da su propietario.
+            // Cada tarjeta lleva su movimiento de apertura en el libro mayor, igual que las creadas con POST, así que el
+            // saldo inicial nunca es 0.
+            double[] amounts = new double[cardCount];
+            for (int card = 0; card < cardCount; card++) {
+                ownerOfCard[card] = owners.next(random);
+                amounts[card] = Math.max(amount(random), 0.01);
+                out.write(values(card, "INSERT INTO CASH_CARD(ID, AMOUNT, OWNER) VALUES ",
+                        String.format(Locale.ROOT, "(%d, %.2f, '%s')", card + 1L, amounts[card], owner(ownerOfCard[card])),
+                        cardCount));
+            }
+            for (int card = 0; card < cardCount; card++) {
+                out.write(values(card, "INSERT INTO CASH_CARD_TRANSACTION(CASH_CARD_ID, TYPE, AMOUNT) VALUES ",
+                        String.format(Locale.ROOT, "(%d, 'CREDIT', %.2f)", card + 1L, amounts[card]),
+                        cardCount));
+            }
+            out.write("ALTER TABLE CASH_CARD ALTER COLUMN ID RESTART WITH " + (cardCount + 1) + ";\n");
+        }
+        return ownerOfCard;
+    }
+
+    //Fila i de un INSERT de varias filas: abre la sentencia cada 1000 filas y la cierra al final del bloque.
+    private static String values(int i, String insert, String row, int total) {
+        boolean first = i % 1000 == 0;
+        boolean last = i % 1000 == 999 || i == total - 1;
+        return (first ? insert : ", ") + row + (last ? ";\n" : "");
+    }
+
+    void run() {
+        int rate = intValue(config, "workload.rate");
+        Duration duration = Duration.parse(config.getProperty("workload.duration"));
+        Duration warmup = Duration.parse(config.getProperty("workload.warmup"));
+        Operation[] mix = mix();
+
+        SplittableRandom random = new SplittableRandom(7);
+        List<CompletableFuture<Void>> inFlight = new ArrayList<>();
+        long intervalNanos = TimeUnit.SECONDS.toNanos(1) / rate;
+        long start = System.nanoTime();
+        long measureFrom = start + warmup.toNanos();
+        long end = start + duration.toNanos();
+        for (long i = 0; ; i++) {
+            long intended = start + i * intervalNanos;
+            if (intended >= end) {
+                break;
+            }
+            long wait;
+            while ((wait = intended - System.nanoTime()) > 0) {
+                LockSupport.parkNanos(wait);
+            }
+            Operation operation = mix[random.nextInt(mix.length)];
+            boolean measured = intended >= measureFrom;
+            CompletableFuture<Integer> response = send(operation, random);
+            if (response == null) {
+                continue;
+            }
+            inFlight.add(response.handle((status, error) -> {
+                record(operation, intended, measured, error == null && status < 400);
+                return null;
+            }));
+        }
+        CompletableFuture.allOf(inFlight.toArray(new CompletableFuture[0])).join();
+    }
+
+    //Devuelve null si la operación no se puede lanzar todavía (delete sin tarjetas creadas por la carga): ese hueco
+    // se salta en lugar de medir otra operación bajo su nombre.
+    private CompletableFuture<Integer> send(Operation operation, SplittableRandom random) {
+        int card = random.nextInt(ownerOfCard.length);
+        String cardOwner = owner(ownerOfCard[card]);
+        long cardId = card + 1L;
+        switch (operation) {
+            case findById:
+                return exchange(cardOwner, request("/cashcards/" + cardId).GET());
+            case findAll:
+                return exchange(owner(owners.next(random)), request("/cashcards?page=0&size=20").GET());
+            case findAllByAmount: {
+                double min = random.nextInt(900);
+                return exchange(owner(owners.next(random)),
+                        request("/cashcards?page=0&size=20&minAmount=" + min + "&maxAmount=" + (min + 100)).GET());
+            }
+            case findTransactions:
+                return exchange(cardOwner, request("/cashcards/" + cardId + "/transactions?size=20").GET());
+            case update:
+                return exchange(cardOwner, request("/cashcards/" + cardId)
+                        .header("Content-Type", "application/json")
+                        .PUT(json(amount(random), cardOwner)));
+            case delete: {
+                long[] created = createdCards.poll();
+                if (created == null) {
+                    return null;
+                }
+                return exchange(owner((int) created[0]), request("/cashcards/" + created[1]).DELETE());
+            }
+            case create: {
+                int owner = owners.next(random);
+                return client.sendAsync(authenticated(owner(owner), request("/cashcards")
+                                        .header("Content-Type", "application/json")
+                                        .POST(json(amount(random), owner(owner)))),
+                                HttpResponse.BodyHandlers.discarding())
+                        .thenApply(response -> {
+                            response.headers().firstValue("Location").ifPresent(location -> createdCards.add(
+                                    new long[]{owner, Long.parseLong(location.substring(location.lastIndexOf('/') + 1))}));
+                            return response.statusCode();
+                        });
+            }
+            default:
+                throw new IllegalStateException("Operación desconocida: " + operation);
+        }
+    }
+
+    private CompletableFuture<Integer> exchange(String owner, HttpRequest.Builder request) {
+        return client.sendAsync(authenticated(owner, request), HttpResponse.BodyHandlers.discarding())
+                .thenApply(HttpResponse::statusCode);
+    }
+
+    private HttpRequest.Builder request(String path) {
+        return HttpRequest.newBuilder(URI.create(baseUrl + path)).timeout(Duration.ofSeconds(30));
+    }
+
+    private static HttpRequest authenticated(String owner, HttpRequest.Builder request) {
+        String credentials = Base64.getEncoder()
+                .encodeToString((owner + ":" + PASSWORD).getBytes(StandardCharsets.UTF_8));
+        return request.header("Authorization", "Basic " + credentials).build();
+    }
+
+    private static HttpRequest.BodyPublisher json(double amount, String owner) {
+        return HttpRequest.BodyPublishers.ofString(
+                String.format(Locale.ROOT, "{\"amount\": %.2f, \"owner\": \"%s\"}", amount, owner));
+    }
+
+    private void record(Operation operation, long intendedStart, boolean measured, boolean success) {
+        if (!measured) {
+            return;
+        }
+        if (!success) {
+            errors.get(operation).increment();
+            return;
+        }
+        long latencyMicros = TimeUnit.NANOSECONDS.toMicros(System.nanoTime() - intendedStart);
+        histograms.get(operation).recordValue(Math.min(latencyMicros, HIGHEST_TRACKABLE_MICROS));
+    }
+
+    boolean report(Path outputDir) throws IOException {
+        Files.createDirectories(outputDir);
+        boolean passed = true;
+        double maxErrorRate = Double.parseDouble(config.getProperty("workload.slo.max-error-rate"));
+        System.out.printf("%-16s %8s %7s %9s %9s %9s %9s %9s %9s  %s%n",
+                "operación", "correctas", "errores", "p50 ms", "p90 ms", "p99 ms", "p99.9 ms", "max ms", "SLO p99", "");
+        for (Operation operation : Operation.values()) {
+            Histogram histogram = histograms.get(operation);
+            try (PrintStream out = new PrintStream(new FileOutputStream(outputDir.resolve(operation + ".hgrm").toFile()))) {
+                histogram.outputPercentileDistribution(out, 1000.0);
+            }
+            double p99 = histogram.getValueAtPercentile(99) / 1000.0;
+            double slo = Double.parseDouble(config.getProperty("workload.slo.p99." + operation));
+            long failed = errors.get(operation).sum();
+            long total = histogram.getTotalCount() + failed;
+            boolean ok = (histogram.getTotalCount() == 0 || p99 <= slo)
+                    && (total == 0 || failed / (double) total <= maxErrorRate);
+            passed &= ok;
+            System.out.printf(Locale.ROOT, "%-16s %8d %7d %9.2f %9.2f %9.2f %9.2f %9.2f %9.2f  %s%n",
+                    operation,
+                    histogram.getTotalCount(),
+                    failed,
+                    histogram.getValueAtPercentile(50) / 1000.0,
+                    histogram.getValueAtPercentile(90) / 1000.0,
+                    p99,
+                    histogram.getValueAtPercentile(99.9) / 1000.0,
+                    histogram.getMaxValue() / 1000.0,
+                    slo,
+                    ok ? "OK" : "FALLA");
+        }
+        System.out.println("Distribuciones completas (HdrHistogram, ms) en " + outputDir.toAbsolutePath());
+        return passed;
+    }
+
+    private Operation[] mix() {
+        List<Operation> weighted = new ArrayList<>();
+        for (Operation operation : Operation.values()) {
+            int weight = intValue(config, "workload.mix." + operation);
+            for (int i = 0; i < weight; i++) {
+                weighted.add(operation);
+            }
+        }
+        return weighted.toArray(new Operation[0]);
+    }
+
+    private static Properties loadConfig() throws IOException {
+        Properties config = new Properties();
+        try (InputStream in = WorkloadGenerator.class.getResourceAsStream("/workload.properties")) {
+            config.load(in);
+        }
+        for (String name : System.getProperties().stringPropertyNames()) {
+            if (name.startsWith("workload.")) {
+                config.setProperty(name, System.getProperty(name));
+            }
+        }
+        return config;
+    }
+
+    private static int intValue(Properties config, String name) {
+        return Integer.parseInt(config.getProperty(name));
+    }
+
+    private static double amount(SplittableRandom random) {
+        return random.nextInt(100_000) / 100.0;
+    }
+
+    private static String owner(int owner) {
+        return "owner" + owner;
+    }
+}
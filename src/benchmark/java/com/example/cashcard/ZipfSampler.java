@@ -0,0 +1,33 @@
+package com.example.cashcard;
+
+import java.util.Arrays;
+import java.util.SplittableRandom;
+
+//Muestrea enteros en [0, n) con distribución de Zipf: P(k) es proporcional a 1 / (k + 1)^exponente.
+//
+//Con exponente 1.0 el propietario 0 tiene el doble de tarjetas que el 1, el triple que el 2, etc., y unos pocos
+// propietarios acumulan la mayor parte. Precalcula la función de distribución acumulada y busca en ella por bisección.
+public class ZipfSampler {
+
+    private final double[] cdf;
+
+    public ZipfSampler(int n, double exponent) {
+        cdf = new double[n];
+        double sum = 0;
+        for (int k = 0; k < n; k++) {
+            sum += 1 / Math.pow(k + 1, exponent);
+            cdf[k] = sum;
+        }
+        for (int k = 0; k < n; k++) {
+            cdf[k] /= sum;
+        }
+    }
+
+    public int next(SplittableRandom random) {
+        int index = Arrays.binarySearch(cdf, random.nextDouble());
+        if (index < 0) {
+            index = -index - 1;
+        }
+        return Math.min(index, cdf.length - 1);
+    }
+}
@@ -0,0 +1,36 @@
+package com.example.cashcard;
+
+import org.springframework.security.core.userdetails.UserCache;
+import org.springframework.security.core.userdetails.UserDetails;
+import org.springframework.security.provisioning.JdbcUserDetailsManager;
+
+import javax.sql.DataSource;
+
+//Usuarios y roles en base de datos (tablas USERS y ROLES de schema.sql).
+//
+//JdbcUserDetailsManager ya invalida la entrada del UserCache en updateUser, changePassword y deleteUser,
+// es decir, cuando cambian la contraseña o los roles (en la caché de esta instancia; ver CaffeineUserCache). Lo que no hace es consultar la caché al cargar un usuario:
+// eso lo añadimos aquí, así autenticar a un usuario frecuente no cuesta ninguna consulta a la base de datos.
+public class CachingJdbcUserDetailsManager extends JdbcUserDetailsManager {
+
+    private final UserCache userCache;
+
+    public CachingJdbcUserDetailsManager(DataSource dataSource, UserCache userCache) {
+        super(dataSource);
+        this.userCache = userCache;
+        setUserCache(userCache);
+        setAuthoritiesByUsernameQuery("select username, role from roles where username = ?");
+        setCreateAuthoritySql("insert into roles (username, role) values (?, ?)");
+        setDeleteUserAuthoritiesSql("delete from roles where username = ?");
+    }
+
+    @Override
+    public UserDetails loadUserByUsername(String username) {
+        UserDetails user = userCache.getUserFromCache(username);
+        if (user == null) {
+            user = super.loadUserByUsername(username);
+            userCache.putUserInCache(user);
+        }
+        return user;
+    }
+}
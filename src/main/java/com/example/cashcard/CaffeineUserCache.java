@@ -0,0 +1,49 @@
+package com.example.cashcard;
+
+import com.github.benmanes.caffeine.cache.Cache;
+import com.github.benmanes.caffeine.cache.Caffeine;
+import org.springframework.security.core.userdetails.User;
+import org.springframework.security.core.userdetails.UserCache;
+import org.springframework.security.core.userdetails.UserDetails;
+
+import java.time.Duration;
+
+//UserCache acotado en tamaño y con caducidad (TTL) sobre Caffeine.
+//
+//La caché es de cada instancia. removeUserFromCache sólo borra la entrada local: si varias instancias comparten las
+// tablas USERS y ROLES, en las demás una contraseña antigua o un rol revocado siguen valiendo hasta que caduca su
+// entrada. El TTL (cashcard.security.user-cache.time-to-live, 30 s por defecto) es ese retraso máximo.
+//
+//Guardamos y devolvemos copias: DaoAuthenticationProvider borra la contraseña del UserDetails autenticado
+// (eraseCredentials), y si entregáramos la instancia cacheada la siguiente autenticación de ese usuario fallaría.
+public class CaffeineUserCache implements UserCache {
+
+    private final Cache<String, UserDetails> users;
+
+    public CaffeineUserCache(long maximumSize, Duration timeToLive) {
+        this.users = Caffeine.newBuilder()
+                .maximumSize(maximumSize)
+                .expireAfterWrite(timeToLive)
+                .build();
+    }
+
+    @Override
+    public UserDetails getUserFromCache(String username) {
+        UserDetails user = users.getIfPresent(username);
+        return user != null ? copyOf(user) : null;
+    }
+
+    @Override
+    public void putUserInCache(UserDetails user) {
+        users.put(user.getUsername(), copyOf(user));
+    }
+
+    @Override
+    public void removeUserFromCache(String username) {
+        users.invalidate(username);
+    }
+
+    private static UserDetails copyOf(UserDetails user) {
+        return User.withUserDetails(user).build();
+    }
+}
@@ -9,6 +9,7 @@ import org.springframework.web.bind.annotation.*;
 import org.springframework.web.util.UriComponentsBuilder;
 
 
+import java.math.BigDecimal;
 import java.net.URI;
 import java.security.Principal;
 import java.util.List;
@@ -43,9 +44,11 @@ public class CashCardController {
     //@GetMapping marca un método como método manejador. Las peticiones GET que coincidan con cashcards/{requestedID}
     // serán gestionadas por este método.
     private CashCardRepository cashCardRepository;
+    private CashCardLedger cashCardLedger;
 
-    public CashCardController(CashCardRepository cashCardRepository) {
+    public CashCardController(CashCardRepository cashCardRepository, CashCardLedger cashCardLedger) {
         this.cashCardRepository = cashCardRepository;
+        this.cashCardLedger = cashCardLedger;
     }
 
     @GetMapping("/{requestedId}")
@@ -97,10 +100,14 @@ public class CashCardController {
     //
     //return ResponseEntity.created(locationOfNewCashCard).build();
     //Finalmente, devolvemos 201 CREATED con la cabecera Location correcta.
+    //La tarjeta la crea el libro mayor (CashCardLedger.create): la fila de CASH_CARD y el CREDIT del importe inicial se
+    // guardan en la misma transacción, así que no puede quedar una tarjeta sin su movimiento de apertura.
     @PostMapping
     private ResponseEntity<Void> createCashCard(@RequestBody CashCard newCashCardRequest,
                                                 UriComponentsBuilder ucb) {
-        CashCard savedCashCard = cashCardRepository.save(newCashCardRequest);
+        BigDecimal amount = newCashCardRequest.amount() != null
+                ? BigDecimal.valueOf(newCashCardRequest.amount()) : BigDecimal.ZERO;
+        CashCard savedCashCard = cashCardLedger.create(newCashCardRequest.owner(), amount);
         URI locationOfNewCashCard = ucb
                 .path("cashcards/{id}")
                 .buildAndExpand(savedCashCard.id())
@@ -124,14 +131,38 @@ public class CashCardController {
     //
     //¿Soporta ya nuestro CashCardRepository paginación y ordenación? Averigüémoslo.
 
+    //Filtrado por rango de importe.
+    //
+    //findAll(Pageable pageable, Double minAmount, Double maxAmount, Principal principal)
+    //Los parámetros minAmount y maxAmount son opcionales: /cashcards?minAmount=100&maxAmount=200.
+    // Si falta alguno de los dos, ese extremo del rango queda abierto. Un rango con minAmount > maxAmount es una
+    // petición incorrecta (400), no una página vacía.
+    //
+    //La consulta siempre se limita al propietario autenticado. El índice (OWNER, AMOUNT) de schema.sql cubre tanto
+    // el filtro como la ordenación por defecto (amount ascendente), así que la base de datos no necesita ordenar.
     @GetMapping
-    public ResponseEntity<List<CashCard>> findAll(Pageable pageable) {
-        Page<CashCard> page = cashCardRepository.findAll(
-                PageRequest.of(
-                        pageable.getPageNumber(),
-                        pageable.getPageSize(),
-                        pageable.getSortOr(Sort.by(Sort.Direction.ASC, "amount"))
-                ));
+    public ResponseEntity<List<CashCard>> findAll(Pageable pageable,
+                                                  @RequestParam(required = false) Double minAmount,
+                                                  @RequestParam(required = false) Double maxAmount,
+                                                  Principal principal) {
+        if (minAmount != null && maxAmount != null && minAmount > maxAmount) {
+            return ResponseEntity.badRequest().build();
+        }
+        PageRequest pageRequest = PageRequest.of(
+                pageable.getPageNumber(),
+                pageable.getPageSize(),
+                pageable.getSortOr(Sort.by(Sort.Direction.ASC, "amount"))
+        );
+        Page<CashCard> page;
+        if (minAmount == null && maxAmount == null) {
+            page = cashCardRepository.findByOwner(principal.getName(), pageRequest);
+        } else if (maxAmount == null) {
+            page = cashCardRepository.findByOwnerAndAmountGreaterThanEqual(principal.getName(), minAmount, pageRequest);
+        } else if (minAmount == null) {
+            page = cashCardRepository.findByOwnerAndAmountLessThanEqual(principal.getName(), maxAmount, pageRequest);
+        } else {
+            page = cashCardRepository.findByOwnerAndAmountBetween(principal.getName(), minAmount, maxAmount, pageRequest);
+        }
         return ResponseEntity.ok(page.getContent());
     }
 
@@ -154,17 +185,36 @@ public class CashCardController {
     //Por último, crea una CashCard con los valores actualizados y guárdala.
     //
     //¡Eso ha sido mucho! Hagamos las pruebas y evaluemos en qué punto estamos.
+    //El importe ya no se sobrescribe: la diferencia con el saldo actual se registra en el libro mayor como CREDIT o
+    // DEBIT, y así queda el historial que devuelve GET /cashcards/{id}/transactions. La diferencia la calcula el libro
+    // mayor con la fila de la tarjeta bloqueada: dos PUT simultáneos con el mismo importe dejan ese importe.
     @PutMapping("/{requestedId}")
     private ResponseEntity<Void> putCashCard(@PathVariable Long requestedId, @RequestBody CashCard cashCardUpdate, Principal principal) {
         CashCard cashCard = cashCardRepository.findByIdAndOwner(requestedId, principal.getName());
         if (cashCard != null) {
-            CashCard updatedCashCard = new CashCard(cashCard.id(), cashCardUpdate.amount(), principal.getName());
-            cashCardRepository.save(updatedCashCard);
+            cashCardLedger.setBalance(cashCard.id(), BigDecimal.valueOf(cashCardUpdate.amount()));
             return ResponseEntity.noContent().build();
         }
         return ResponseEntity.notFound().build();
     }
 
+    //Movimientos de la tarjeta, del más reciente al más antiguo, con el saldo después de cada uno.
+    //
+    //Paginación por clave en lugar de page/size: /cashcards/99/transactions?size=20 devuelve la primera página y
+    // /cashcards/99/transactions?before=<id del último movimiento>&size=20 la siguiente. Cada página es un recorrido
+    // del índice (CASH_CARD_ID, ID) que empieza en before, sin OFFSET, así que cuesta lo mismo en la página 1 que en
+    // la 1000.
+    @GetMapping("/{requestedId}/transactions")
+    public ResponseEntity<List<CashCardTransaction>> findTransactions(@PathVariable Long requestedId,
+                                                                      @RequestParam(required = false) Long before,
+                                                                      @RequestParam(defaultValue = "20") int size,
+                                                                      Principal principal) {
+        if (!cashCardRepository.existsByIdAndOwner(requestedId, principal.getName())) {
+            return ResponseEntity.notFound().build();
+        }
+        return ResponseEntity.ok(cashCardLedger.findTransactions(requestedId, before, Math.min(Math.max(size, 1), 100)));
+    }
+
     //Comprender el código del Repositorio.
     //
     //Añadimos lógica al método del Controlador para comprobar si el ID de la tarjeta de crédito de la petición existe
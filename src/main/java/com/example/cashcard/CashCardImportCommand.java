@@ -0,0 +1,43 @@
+package com.example.cashcard;
+
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.ApplicationArguments;
+import org.springframework.boot.ApplicationRunner;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.stereotype.Component;
+
+import java.nio.file.Path;
+
+//Lanza CashCardImporter al arrancar si se indica cashcard.import.file, por ejemplo con la tarea importCashCards:
+//
+//  ./gradlew importCashCards --args='--cashcard.import.file=/datos/tarjetas.csv --cashcard.import.threads=8'
+//
+//Propiedades: cashcard.import.threads (por defecto, un hilo por procesador), cashcard.import.batch-size (filas por
+// transacción) y cashcard.import.segment-size (bytes por segmento mapeado en memoria).
+@Component
+@ConditionalOnProperty("cashcard.import.file")
+class CashCardImportCommand implements ApplicationRunner {
+
+    private final CashCardImporter importer;
+    private final Path file;
+    private final int threads;
+    private final int batchSize;
+    private final long segmentSize;
+
+    CashCardImportCommand(CashCardImporter importer,
+                          @Value("${cashcard.import.file}") Path file,
+                          @Value("${cashcard.import.threads:0}") int threads,
+                          @Value("${cashcard.import.batch-size:5000}") int batchSize,
+                          @Value("${cashcard.import.segment-size:268435456}") long segmentSize) {
+        this.importer = importer;
+        this.file = file;
+        this.threads = threads > 0 ? threads : Runtime.getRuntime().availableProcessors();
+        this.batchSize = batchSize;
+        this.segmentSize = segmentSize;
+    }
+
+    @Override
+    public void run(ApplicationArguments args) throws Exception {
+        importer.importFile(file, threads, batchSize, segmentSize);
+    }
+}
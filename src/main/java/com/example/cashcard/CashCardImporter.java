@@ -0,0 +1,434 @@
+package com.example.cashcard;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.jdbc.core.BatchPreparedStatementSetter;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.io.IOException;
+import java.math.BigDecimal;
+import java.nio.ByteBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.sql.PreparedStatement;
+import java.sql.SQLException;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.LongAdder;
+
+//Importación masiva de tarjetas desde un CSV de líneas "owner,amount" (con cabecera opcional "owner,amount").
+//
+//En lugar de repetir POST /cashcards fila a fila:
+//
+//1. El fichero se divide en segmentos que empiezan en un inicio de línea y se cuentan sus filas en paralelo.
+// Con esos recuentos cada fila tiene un ID fijo (ID_BASE + número de fila), y el rango de IDs se reserva
+// adelantando la identidad de CASH_CARD (ver reserveIds(), específico de H2), así que las altas por la API durante la
+// importación no chocan.
+//2. Varios hilos cargan segmentos a la vez. Cada segmento se lee con un MappedByteBuffer y se analiza byte a byte
+// sin copiar líneas ni crear Strings intermedios: el importe se acumula directamente como entero escalado y los
+// propietarios repetidos se reutilizan desde una pequeña caché.
+//3. Cada bloque de batch-size filas se escribe en una transacción: INSERT por lotes en CASH_CARD, los movimientos de
+// apertura en el libro mayor y el avance del segmento en CASH_CARD_IMPORT_SEGMENT.
+//
+//Como el avance se confirma junto con las filas, si la importación se interrumpe basta con volver a lanzarla sobre
+// el mismo fichero: cada segmento continúa desde su último bloque confirmado, con los mismos IDs.
+@Component
+public class CashCardImporter {
+
+    private static final Logger log = LoggerFactory.getLogger(CashCardImporter.class);
+    private static final String HEADER = "owner,amount";
+
+    public record ImportResult(long rows, Duration elapsed) {
+        public double rowsPerSecond() {
+            return elapsed.isZero() ? rows : rows / (elapsed.toNanos() / 1e9);
+        }
+    }
+
+    private record Segment(int index, long endOffset, long nextOffset, long nextRow) {
+    }
+
+    private final JdbcTemplate jdbcTemplate;
+    private final TransactionTemplate transactionTemplate;
+
+    public CashCardImporter(JdbcTemplate jdbcTemplate, PlatformTransactionManager transactionManager) {
+        this.jdbcTemplate = jdbcTemplate;
+        this.transactionTemplate = new TransactionTemplate(transactionManager);
+    }
+
+    public ImportResult importFile(Path file, int threads, int batchSize, long segmentSize)
+            throws IOException, InterruptedException {
+        if (segmentSize <= 0 || segmentSize > Integer.MAX_VALUE) {
+            throw new IllegalArgumentException("segmentSize debe estar entre 1 y " + Integer.MAX_VALUE);
+        }
+        String importId = file.toAbsolutePath() + ":" + Files.size(file) + ":" + Files.getLastModifiedTime(file).toMillis();
+        long start = System.nanoTime();
+        LongAdder imported = new LongAdder();
+        ExecutorService workers = Executors.newFixedThreadPool(threads);
+        ScheduledExecutorService progress = Executors.newSingleThreadScheduledExecutor();
+        try (FileChannel channel = FileChannel.open(file, StandardOpenOption.READ)) {
+            Long idBase = jdbcTemplate.query("SELECT ID_BASE FROM CASH_CARD_IMPORT WHERE IMPORT_ID = ? AND COMPLETED = FALSE",
+                    rs -> rs.next() ? rs.getLong(1) : null, importId);
+            if (idBase == null) {
+                Boolean completed = jdbcTemplate.query("SELECT COMPLETED FROM CASH_CARD_IMPORT WHERE IMPORT_ID = ?",
+                        rs -> rs.next() ? rs.getBoolean(1) : null, importId);
+                if (Boolean.TRUE.equals(completed)) {
+                    log.info("{} ya estaba importado", file);
+                    return new ImportResult(0, Duration.ZERO);
+                }
+                idBase = plan(importId, channel, segmentSize, workers);
+            }
+
+            progress.scheduleAtFixedRate(() -> log.info("{} filas importadas ({} filas/s)", imported.sum(),
+                            Math.round(imported.sum() / ((System.nanoTime() - start) / 1e9))),
+                    5, 5, TimeUnit.SECONDS);
+
+            long base = idBase;
+            List<Future<?>> loads = new ArrayList<>();
+            for (Segment segment : pendingSegments(importId)) {
+                loads.add(workers.submit(() -> {
+                    new SegmentLoader(importId, base, batchSize, imported).load(channel, segment);
+                    return null;
+                }));
+            }
+            for (Future<?> load : loads) {
+                try {
+                    load.get();
+                } catch (ExecutionException e) {
+                    loads.forEach(pending -> pending.cancel(true));
+                    throw new IllegalStateException("Falló la importación de " + file, e.getCause());
+                }
+            }
+            jdbcTemplate.update("UPDATE CASH_CARD_IMPORT SET COMPLETED = TRUE WHERE IMPORT_ID = ?", importId);
+        } finally {
+            progress.shutdownNow();
+            workers.shutdownNow();
+        }
+
+        ImportResult result = new ImportResult(imported.sum(), Duration.ofNanos(System.nanoTime() - start));
+        log.info("{}: {} filas en {} ms ({} filas/s)", file, result.rows(), result.elapsed().toMillis(),
+                Math.round(result.rowsPerSecond()));
+        return result;
+    }
+
+    //Primera ejecución: divide el fichero, cuenta filas por segmento, reserva el rango de IDs y guarda el plan.
+    private long plan(String importId, FileChannel channel, long segmentSize, ExecutorService workers)
+            throws IOException, InterruptedException {
+        long size = channel.size();
+        List<Long> starts = new ArrayList<>();
+        starts.add(skipHeader(channel));
+        for (long nominal = segmentSize; nominal < size; nominal += segmentSize) {
+            long lineStart = nextLineStart(channel, nominal);
+            if (lineStart > starts.get(starts.size() - 1) && lineStart < size) {
+                starts.add(lineStart);
+            }
+        }
+        starts.add(size);
+
+        List<Future<Long>> counts = new ArrayList<>();
+        for (int i = 0; i < starts.size() - 1; i++) {
+            long from = starts.get(i);
+            long to = starts.get(i + 1);
+            counts.add(workers.submit(() -> countRows(channel, from, to)));
+        }
+        long[] rowBases = new long[counts.size() + 1];
+        for (int i = 0; i < counts.size(); i++) {
+            try {
+                rowBases[i + 1] = rowBases[i] + counts.get(i).get();
+            } catch (ExecutionException e) {
+                throw new IOException("No se pudo leer el fichero", e.getCause());
+            }
+        }
+        long totalRows = rowBases[counts.size()];
+
+        long idBase = reserveIds(totalRows);
+        return transactionTemplate.execute(status -> {
+            jdbcTemplate.update("INSERT INTO CASH_CARD_IMPORT(IMPORT_ID, ID_BASE) VALUES (?, ?)", importId, idBase);
+            List<Object[]> segments = new ArrayList<>();
+            for (int i = 0; i < starts.size() - 1; i++) {
+                segments.add(new Object[]{importId, i, starts.get(i + 1), starts.get(i), rowBases[i]});
+            }
+            jdbcTemplate.batchUpdate("INSERT INTO CASH_CARD_IMPORT_SEGMENT(IMPORT_ID, SEGMENT, END_OFFSET, NEXT_OFFSET, NEXT_ROW) " +
+                    "VALUES (?, ?, ?, ?, ?)", segments);
+            log.info("Importación planificada: {} filas en {} segmentos, IDs {}..{}",
+                    totalRows, segments.size(), idBase + 1, idBase + totalRows);
+            return idBase;
+        });
+    }
+
+    //Reserva count IDs consecutivos de CASH_CARD y devuelve el anterior al primero. Específico de H2.
+    //
+    //El primer ID es el mayor de: el siguiente valor de la identidad, MAX(ID) + 1 y el mayor CASH_CARD_ID del libro
+    // mayor y de las instantáneas + 1. Así la identidad nunca retrocede, y un ID de una tarjeta borrada (cuyo historial
+    // se conserva) no se reutiliza. Después se adelanta la identidad hasta el final del rango.
+    //
+    //ALTER TABLE es DDL: H2 lo confirma por su cuenta, fuera de cualquier transacción, y espera a que terminen las
+    // transacciones que están insertando en CASH_CARD. Un alta por la API entre la lectura y el ALTER puede haberse
+    // quedado con un ID del rango; en ese caso ya es visible, y se vuelve a reservar por encima. Si el proceso se
+    // interrumpe antes de guardar el plan, el rango reservado queda como un hueco sin usar.
+    private long reserveIds(long count) {
+        while (true) {
+            long first = jdbcTemplate.queryForObject("SELECT GREATEST(" +
+                    "(SELECT COALESCE(IDENTITY_BASE, 1) FROM INFORMATION_SCHEMA.COLUMNS " +
+                    "WHERE TABLE_SCHEMA = CURRENT_SCHEMA AND TABLE_NAME = 'CASH_CARD' AND COLUMN_NAME = 'ID'), " +
+                    "(SELECT COALESCE(MAX(ID), 0) + 1 FROM CASH_CARD), " +
+                    "(SELECT COALESCE(MAX(CASH_CARD_ID), 0) + 1 FROM CASH_CARD_TRANSACTION), " +
+                    "(SELECT COALESCE(MAX(CASH_CARD_ID), 0) + 1 FROM BALANCE_SNAPSHOT))", Long.class);
+            jdbcTemplate.execute("ALTER TABLE CASH_CARD ALTER COLUMN ID RESTART WITH " + (first + count));
+            Integer taken = jdbcTemplate.queryForObject(
+                    "SELECT COUNT(*) FROM CASH_CARD WHERE ID >= ? AND ID < ?", Integer.class, first, first + count);
+            if (taken == 0) {
+                return first - 1;
+            }
+        }
+    }
+
+    private List<Segment> pendingSegments(String importId) {
+        return jdbcTemplate.query("SELECT SEGMENT, END_OFFSET, NEXT_OFFSET, NEXT_ROW FROM CASH_CARD_IMPORT_SEGMENT " +
+                        "WHERE IMPORT_ID = ? AND NEXT_OFFSET < END_OFFSET ORDER BY SEGMENT",
+                (rs, rowNum) -> new Segment(rs.getInt(1), rs.getLong(2), rs.getLong(3), rs.getLong(4)),
+                importId);
+    }
+
+    //Salta la primera línea sólo si es exactamente la cabecera "owner,amount": una primera fila cuyo propietario se
+    // llame "owner" es una tarjeta más.
+    private static long skipHeader(FileChannel channel) throws IOException {
+        ByteBuffer first = ByteBuffer.allocate(HEADER.length() + 2);
+        channel.read(first, 0);
+        String line = new String(first.array(), 0, first.position(), StandardCharsets.US_ASCII);
+        int end = line.indexOf('\n');
+        line = end >= 0 ? line.substring(0, end) : line;
+        if (line.endsWith("\r")) {
+            line = line.substring(0, line.length() - 1);
+        }
+        return line.equals(HEADER) ? nextLineStart(channel, 1) : 0;
+    }
+
+    //Primer inicio de línea en position o después (position es inicio de línea si el byte anterior es '\n').
+    private static long nextLineStart(FileChannel channel, long position) throws IOException {
+        ByteBuffer buffer = ByteBuffer.allocate(8192);
+        long offset = position - 1;
+        while (true) {
+            buffer.clear();
+            int read = channel.read(buffer, offset);
+            if (read <= 0) {
+                return channel.size();
+            }
+            for (int i = 0; i < read; i++) {
+                if (buffer.get(i) == '\n') {
+                    return offset + i + 1;
+                }
+            }
+            offset += read;
+        }
+    }
+
+    //Una fila es cada línea que no está vacía; SegmentLoader sigue exactamente la misma regla.
+    private static long countRows(FileChannel channel, long from, long to) throws IOException {
+        MappedByteBuffer buffer = channel.map(FileChannel.MapMode.READ_ONLY, from, to - from);
+        long rows = 0;
+        boolean lineStart = true;
+        for (int i = 0, limit = buffer.limit(); i < limit; i++) {
+            byte b = buffer.get(i);
+            if (b == '\n') {
+                lineStart = true;
+            } else if (lineStart && b != '\r') {
+                rows++;
+                lineStart = false;
+            }
+        }
+        return rows;
+    }
+
+    //Carga un segmento. Cada hilo usa el suyo, así que los arrays del bloque y la caché de propietarios se reutilizan
+    // de un bloque a otro sin sincronización.
+    private final class SegmentLoader {
+
+        private final String importId;
+        private final long idBase;
+        private final int batchSize;
+        private final LongAdder imported;
+        private final long[] ids;
+        private final String[] owners;
+        private final long[] unscaledAmounts;
+        private final int[] scales;
+        private final int[] openings;
+        private final OwnerCache ownerCache = new OwnerCache();
+        private int size;
+
+        SegmentLoader(String importId, long idBase, int batchSize, LongAdder imported) {
+            this.importId = importId;
+            this.idBase = idBase;
+            this.batchSize = batchSize;
+            this.imported = imported;
+            this.ids = new long[batchSize];
+            this.owners = new String[batchSize];
+            this.unscaledAmounts = new long[batchSize];
+            this.scales = new int[batchSize];
+            this.openings = new int[batchSize];
+        }
+
+        void load(FileChannel channel, Segment segment) throws IOException {
+            long base = segment.nextOffset();
+            MappedByteBuffer buffer = channel.map(FileChannel.MapMode.READ_ONLY, base, segment.endOffset() - base);
+            int limit = buffer.limit();
+            int pos = 0;
+            long row = segment.nextRow();
+            while (pos < limit) {
+                byte b = buffer.get(pos);
+                if (b == '\n' || b == '\r') {
+                    pos++;
+                    continue;
+                }
+                if (Thread.currentThread().isInterrupted()) {
+                    return;
+                }
+
+                int comma = pos;
+                while (comma < limit && buffer.get(comma) != ',' && buffer.get(comma) != '\n') {
+                    comma++;
+                }
+                if (comma == limit || buffer.get(comma) != ',') {
+                    throw new IllegalArgumentException("Falta la coma en la línea que empieza en el byte " + (base + pos));
+                }
+                String owner = ownerCache.get(buffer, pos, comma - pos);
+
+                long unscaled = 0;
+                int scale = 0;
+                boolean negative = false;
+                boolean fraction = false;
+                boolean digits = false;
+                pos = comma + 1;
+                for (; pos < limit; pos++) {
+                    byte c = buffer.get(pos);
+                    if (c == '\n' || c == '\r') {
+                        break;
+                    } else if (c >= '0' && c <= '9' && unscaled < Long.MAX_VALUE / 10) {
+                        unscaled = unscaled * 10 + (c - '0');
+                        scale += fraction ? 1 : 0;
+                        digits = true;
+                    } else if (c == '.' && !fraction) {
+                        fraction = true;
+                    } else if (c == '-' && !negative && !digits && !fraction) {
+                        negative = true;
+                    } else {
+                        throw new IllegalArgumentException("Importe no válido cerca del byte " + (base + pos));
+                    }
+                }
+                if (!digits) {
+                    throw new IllegalArgumentException("Falta el importe en la línea que termina en el byte " + (base + pos));
+                }
+
+                ids[size] = idBase + row + 1;
+                owners[size] = owner;
+                unscaledAmounts[size] = negative ? -unscaled : unscaled;
+                scales[size] = scale;
+                size++;
+                row++;
+                if (size == batchSize) {
+                    flush(segment, nextLineStart(buffer, pos, limit) + base, row);
+                }
+            }
+            flush(segment, segment.endOffset(), row);
+        }
+
+        private int nextLineStart(MappedByteBuffer buffer, int pos, int limit) {
+            while (pos < limit && buffer.get(pos) != '\n') {
+                pos++;
+            }
+            return Math.min(pos + 1, limit);
+        }
+
+        //Escribe el bloque y el avance del segmento en la misma transacción.
+        private void flush(Segment segment, long nextOffset, long nextRow) {
+            int rows = size;
+            int openingCount = 0;
+            for (int i = 0; i < rows; i++) {
+                if (unscaledAmounts[i] != 0) {
+                    openings[openingCount++] = i;
+                }
+            }
+            int openingRows = openingCount;
+            transactionTemplate.executeWithoutResult(status -> {
+                jdbcTemplate.batchUpdate("INSERT INTO CASH_CARD(ID, AMOUNT, OWNER) VALUES (?, ?, ?)",
+                        new BatchPreparedStatementSetter() {
+                            @Override
+                            public void setValues(PreparedStatement ps, int i) throws SQLException {
+                                ps.setLong(1, ids[i]);
+                                ps.setBigDecimal(2, BigDecimal.valueOf(unscaledAmounts[i], scales[i]));
+                                ps.setString(3, owners[i]);
+                            }
+
+                            @Override
+                            public int getBatchSize() {
+                                return rows;
+                            }
+                        });
+                jdbcTemplate.batchUpdate("INSERT INTO CASH_CARD_TRANSACTION(CASH_CARD_ID, TYPE, AMOUNT) VALUES (?, ?, ?)",
+                        new BatchPreparedStatementSetter() {
+                            @Override
+                            public void setValues(PreparedStatement ps, int i) throws SQLException {
+                                int row = openings[i];
+                                ps.setLong(1, ids[row]);
+                                ps.setString(2, unscaledAmounts[row] > 0 ? "CREDIT" : "DEBIT");
+                                ps.setBigDecimal(3, BigDecimal.valueOf(Math.abs(unscaledAmounts[row]), scales[row]));
+                            }
+
+                            @Override
+                            public int getBatchSize() {
+                                return openingRows;
+                            }
+                        });
+                jdbcTemplate.update("UPDATE CASH_CARD_IMPORT_SEGMENT SET NEXT_OFFSET = ?, NEXT_ROW = ? " +
+                        "WHERE IMPORT_ID = ? AND SEGMENT = ?", nextOffset, nextRow, importId, segment.index());
+            });
+            imported.add(rows);
+            size = 0;
+        }
+    }
+
+    //Caché de correspondencia directa bytes -> String para los propietarios: en una cartera real unos pocos
+    // propietarios se repiten muchísimo y así no se crea un String nuevo por fila.
+    private static final class OwnerCache {
+
+        private static final int SLOTS = 4096;
+
+        private final byte[][] keys = new byte[SLOTS][];
+        private final String[] values = new String[SLOTS];
+        private byte[] scratch = new byte[256];
+
+        String get(ByteBuffer buffer, int offset, int length) {
+            if (length > scratch.length) {
+                scratch = new byte[length];
+            }
+            buffer.get(offset, scratch, 0, length);
+            int hash = 0;
+            for (int i = 0; i < length; i++) {
+                hash = 31 * hash + scratch[i];
+            }
+            int slot = (hash ^ (hash >>> 16)) & (SLOTS - 1);
+            byte[] key = keys[slot];
+            if (key != null && Arrays.equals(key, 0, key.length, scratch, 0, length)) {
+                return values[slot];
+            }
+            String owner = new String(scratch, 0, length, StandardCharsets.UTF_8);
+            keys[slot] = Arrays.copyOf(scratch, length);
+            values[slot] = owner;
+            return owner;
+        }
+    }
+}
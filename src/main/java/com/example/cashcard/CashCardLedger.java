@@ -0,0 +1,277 @@
+package com.example.cashcard;
+
+import jakarta.annotation.PreDestroy;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.math.BigDecimal;
+import java.sql.Timestamp;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.TreeSet;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.LinkedBlockingQueue;
+
+//Libro mayor de movimientos de cada tarjeta (tabla CASH_CARD_TRANSACTION, sólo se añaden filas).
+//
+//Escrituras agrupadas: append() y setBalance() encolan el movimiento y esperan a que se confirme. Un único hilo recoge
+// todos los movimientos pendientes (hasta batch-size) y los escribe en una sola transacción. Con poca carga cada lote
+// tiene un movimiento; con mucha, muchos movimientos comparten transacción.
+//
+//Dentro de la transacción se bloquean con SELECT ... FOR UPDATE las filas de CASH_CARD del lote, en orden de ID para
+// que dos escritores no se interbloqueen. Con el bloqueo, el importe de un setBalance() (PUT) se calcula sobre el saldo
+// confirmado, no sobre uno leído antes, y los movimientos de una misma tarjeta se escriben de uno en uno aunque haya
+// varias instancias de la aplicación: cada movimiento recibe un ID mayor que los ya confirmados de esa tarjeta, siempre
+// que la identidad de CASH_CARD_TRANSACTION sea creciente entre conexiones (sin caché de secuencia por sesión).
+// Las instantáneas y las colas (ID > instantánea) dependen de ese orden.
+//
+//Las tarjetas nuevas se crean con create(), que guarda la fila de CASH_CARD y el movimiento de apertura juntos.
+//
+//CASH_CARD.AMOUNT se actualiza en la misma transacción y es la lectura del saldo actual (GET /cashcards/{id}, el
+// listado y el índice (OWNER, AMOUNT)): siempre es igual a la suma del libro mayor.
+//
+//Instantáneas: cuando la cola de movimientos posteriores a la última instantánea de una tarjeta llega a
+// snapshot-interval, se guarda el saldo en BALANCE_SNAPSHOT. Sirven para el historial: el saldo después de cualquier
+// movimiento pasado es la instantánea anterior más, como mucho, snapshot-interval movimientos, sin recorrer todo el
+// historial.
+@Component
+public class CashCardLedger {
+
+    private static final String SIGNED_AMOUNT = "CASE WHEN TYPE = 'CREDIT' THEN AMOUNT ELSE -AMOUNT END";
+
+    //amount es la variación del saldo o, si balance es true, el saldo final que debe quedar.
+    private record PendingEntry(long cashCardId, BigDecimal amount, boolean balance, CompletableFuture<Void> done) {
+    }
+
+    private record Snapshot(long transactionId, BigDecimal balance) {
+    }
+
+    private final JdbcTemplate jdbcTemplate;
+    private final CashCardRepository cashCardRepository;
+    private final TransactionTemplate transactionTemplate;
+    private final int batchSize;
+    private final int snapshotInterval;
+    private final BlockingQueue<PendingEntry> pending = new LinkedBlockingQueue<>();
+    private final Thread writer;
+    private volatile boolean stopped;
+
+    public CashCardLedger(JdbcTemplate jdbcTemplate,
+                          CashCardRepository cashCardRepository,
+                          PlatformTransactionManager transactionManager,
+                          @Value("${cashcard.ledger.batch-size:500}") int batchSize,
+                          @Value("${cashcard.ledger.snapshot-interval:100}") int snapshotInterval) {
+        this.jdbcTemplate = jdbcTemplate;
+        this.cashCardRepository = cashCardRepository;
+        this.transactionTemplate = new TransactionTemplate(transactionManager);
+        this.batchSize = batchSize;
+        this.snapshotInterval = snapshotInterval;
+        this.writer = new Thread(this::writeBatches, "cash-card-ledger-writer");
+        this.writer.setDaemon(true);
+        this.writer.start();
+    }
+
+    //Crea la tarjeta con su saldo inicial y el CREDIT de apertura en la misma transacción: o se guardan los dos o
+    // ninguno, y nadie ve la tarjeta con saldo 0 antes del movimiento. No pasa por la cola del hilo escritor porque la
+    // tarjeta es nueva: hasta que se confirme, nadie más puede escribir en ella.
+    public CashCard create(String owner, BigDecimal amount) {
+        return transactionTemplate.execute(status -> {
+            CashCard saved = cashCardRepository.save(new CashCard(null, amount.doubleValue(), owner));
+            if (amount.signum() != 0) {
+                jdbcTemplate.update("INSERT INTO CASH_CARD_TRANSACTION(CASH_CARD_ID, TYPE, AMOUNT) VALUES (?, ?, ?)",
+                        saved.id(), amount.signum() > 0 ? "CREDIT" : "DEBIT", amount.abs());
+                snapshotIfDue(Set.of(saved.id()), Map.of(saved.id(), amount));
+            }
+            return saved;
+        });
+    }
+
+    //Registra un movimiento: delta positivo es un CREDIT, negativo un DEBIT. Vuelve cuando está confirmado.
+    public void append(long cashCardId, BigDecimal delta) {
+        if (delta.signum() == 0) {
+            return;
+        }
+        submit(new PendingEntry(cashCardId, delta, false, new CompletableFuture<>()));
+    }
+
+    //Deja el saldo de la tarjeta en balance con un único movimiento por la diferencia con el saldo confirmado
+    // (ninguno si ya coincide). Vuelve cuando está confirmado.
+    public void setBalance(long cashCardId, BigDecimal balance) {
+        submit(new PendingEntry(cashCardId, balance, true, new CompletableFuture<>()));
+    }
+
+    private void submit(PendingEntry entry) {
+        // Después de stop() el hilo escritor ya no recoge nada: un movimiento encolado entonces esperaría para siempre.
+        if (stopped) {
+            throw new IllegalStateException("El libro mayor se ha detenido");
+        }
+        pending.add(entry);
+        if (stopped && pending.remove(entry)) {
+            throw new IllegalStateException("El libro mayor se ha detenido");
+        }
+        try {
+            entry.done().join();
+        } catch (CompletionException e) {
+            if (e.getCause() instanceof RuntimeException cause) {
+                throw cause;
+            }
+            throw e;
+        }
+    }
+
+    //Página de movimientos, del más reciente al más antiguo, con ID menor que before (paginación por clave).
+    // Para pedir la página siguiente se pasa como before el ID del último movimiento recibido.
+    public List<CashCardTransaction> findTransactions(long cashCardId, Long before, int size) {
+        List<Object[]> rows = jdbcTemplate.query(
+                "SELECT ID, TYPE, AMOUNT, CREATED_AT FROM CASH_CARD_TRANSACTION " +
+                        "WHERE CASH_CARD_ID = ? AND ID < ? ORDER BY ID DESC LIMIT ?",
+                (rs, rowNum) -> new Object[]{rs.getLong("ID"), rs.getString("TYPE"),
+                        rs.getBigDecimal("AMOUNT"), rs.getTimestamp("CREATED_AT")},
+                cashCardId, before != null ? before : Long.MAX_VALUE, size);
+
+        List<CashCardTransaction> transactions = new ArrayList<>();
+        if (rows.isEmpty()) {
+            return transactions;
+        }
+        BigDecimal balance = balanceAfter(cashCardId, (Long) rows.get(0)[0]);
+        for (Object[] row : rows) {
+            String type = (String) row[1];
+            BigDecimal amount = (BigDecimal) row[2];
+            transactions.add(new CashCardTransaction((Long) row[0], type, amount.doubleValue(),
+                    balance.doubleValue(), ((Timestamp) row[3]).toLocalDateTime()));
+            balance = "CREDIT".equals(type) ? balance.subtract(amount) : balance.add(amount);
+        }
+        return transactions;
+    }
+
+    //Saldo de la tarjeta justo después del movimiento transactionId: instantánea anterior más la cola.
+    public BigDecimal balanceAfter(long cashCardId, long transactionId) {
+        Snapshot snapshot = latestSnapshot(cashCardId, transactionId);
+        BigDecimal tail = jdbcTemplate.queryForObject(
+                "SELECT COALESCE(SUM(" + SIGNED_AMOUNT + "), 0) FROM CASH_CARD_TRANSACTION " +
+                        "WHERE CASH_CARD_ID = ? AND ID > ? AND ID <= ?",
+                BigDecimal.class, cashCardId, snapshot.transactionId(), transactionId);
+        return snapshot.balance().add(tail);
+    }
+
+    @PreDestroy
+    void stop() {
+        stopped = true;
+        writer.interrupt();
+    }
+
+    private void writeBatches() {
+        List<PendingEntry> batch = new ArrayList<>(batchSize);
+        try {
+            while (true) {
+                batch.add(pending.take());
+                pending.drainTo(batch, batchSize - 1);
+                try {
+                    List<PendingEntry> rejected = transactionTemplate.execute(status -> write(batch));
+                    for (PendingEntry entry : batch) {
+                        if (rejected.contains(entry)) {
+                            entry.done().completeExceptionally(
+                                    new IllegalArgumentException("La tarjeta " + entry.cashCardId() + " no existe"));
+                        } else {
+                            entry.done().complete(null);
+                        }
+                    }
+                } catch (RuntimeException e) {
+                    batch.forEach(entry -> entry.done().completeExceptionally(e));
+                }
+                batch.clear();
+            }
+        } catch (InterruptedException e) {
+            IllegalStateException stopped = new IllegalStateException("El libro mayor se ha detenido");
+            batch.forEach(entry -> entry.done().completeExceptionally(stopped));
+            pending.forEach(entry -> entry.done().completeExceptionally(stopped));
+        }
+    }
+
+    //Escribe el lote y devuelve los movimientos rechazados porque su tarjeta ya no existe.
+    private List<PendingEntry> write(List<PendingEntry> batch) {
+        Set<Long> ids = new TreeSet<>();
+        for (PendingEntry entry : batch) {
+            ids.add(entry.cashCardId());
+        }
+        // Una sola consulta bloquea todas las tarjetas del lote, en orden de ID.
+        Map<Long, BigDecimal> balances = new HashMap<>();
+        jdbcTemplate.query("SELECT ID, AMOUNT FROM CASH_CARD WHERE ID IN (" + placeholders(ids.size()) + ") " +
+                        "ORDER BY ID FOR UPDATE",
+                rs -> {
+                    balances.put(rs.getLong("ID"), rs.getBigDecimal("AMOUNT"));
+                },
+                ids.toArray());
+
+        List<PendingEntry> rejected = new ArrayList<>();
+        List<Object[]> entries = new ArrayList<>(batch.size());
+        Set<Long> changed = new LinkedHashSet<>();
+        for (PendingEntry entry : batch) {
+            BigDecimal current = balances.get(entry.cashCardId());
+            if (current == null) {
+                rejected.add(entry);
+                continue;
+            }
+            BigDecimal delta = entry.balance() ? entry.amount().subtract(current) : entry.amount();
+            if (delta.signum() != 0) {
+                entries.add(new Object[]{entry.cashCardId(), delta.signum() > 0 ? "CREDIT" : "DEBIT", delta.abs()});
+                balances.put(entry.cashCardId(), current.add(delta));
+                changed.add(entry.cashCardId());
+            }
+        }
+        if (changed.isEmpty()) {
+            return rejected;
+        }
+        jdbcTemplate.batchUpdate(
+                "INSERT INTO CASH_CARD_TRANSACTION(CASH_CARD_ID, TYPE, AMOUNT) VALUES (?, ?, ?)", entries);
+        List<Object[]> updates = new ArrayList<>(changed.size());
+        for (Long cashCardId : changed) {
+            updates.add(new Object[]{balances.get(cashCardId), cashCardId});
+        }
+        jdbcTemplate.batchUpdate("UPDATE CASH_CARD SET AMOUNT = ? WHERE ID = ?", updates);
+        snapshotIfDue(changed, balances);
+        return rejected;
+    }
+
+    //Guarda una instantánea de cada tarjeta cuya cola (movimientos posteriores a su última instantánea) ha llegado a
+    // snapshot-interval. Una consulta agrupada encuentra esas tarjetas; como están bloqueadas, su último movimiento es
+    // el de mayor ID y el saldo después de él es el que acaba de quedar en CASH_CARD.AMOUNT.
+    private void snapshotIfDue(Set<Long> cashCardIds, Map<Long, BigDecimal> balances) {
+        List<Object> args = new ArrayList<>(cashCardIds);
+        args.add(snapshotInterval);
+        List<Object[]> snapshots = jdbcTemplate.query(
+                "SELECT T.CASH_CARD_ID, MAX(T.ID) FROM CASH_CARD_TRANSACTION T " +
+                        "WHERE T.CASH_CARD_ID IN (" + placeholders(cashCardIds.size()) + ") " +
+                        "AND T.ID > COALESCE((SELECT MAX(S.TRANSACTION_ID) FROM BALANCE_SNAPSHOT S " +
+                        "WHERE S.CASH_CARD_ID = T.CASH_CARD_ID), 0) " +
+                        "GROUP BY T.CASH_CARD_ID HAVING COUNT(*) >= ?",
+                (rs, rowNum) -> new Object[]{rs.getLong(1), rs.getLong(2), balances.get(rs.getLong(1))},
+                args.toArray());
+        jdbcTemplate.batchUpdate(
+                "INSERT INTO BALANCE_SNAPSHOT(CASH_CARD_ID, TRANSACTION_ID, BALANCE) VALUES (?, ?, ?)", snapshots);
+    }
+
+    private static String placeholders(int count) {
+        return String.join(", ", Collections.nCopies(count, "?"));
+    }
+
+    //Última instantánea de la tarjeta en o antes de transactionId; si no hay ninguna, saldo cero antes del primer
+    // movimiento.
+    private Snapshot latestSnapshot(long cashCardId, long transactionId) {
+        List<Snapshot> snapshots = jdbcTemplate.query(
+                "SELECT TRANSACTION_ID, BALANCE FROM BALANCE_SNAPSHOT " +
+                        "WHERE CASH_CARD_ID = ? AND TRANSACTION_ID <= ? ORDER BY TRANSACTION_ID DESC LIMIT 1",
+                (rs, rowNum) -> new Snapshot(rs.getLong("TRANSACTION_ID"), rs.getBigDecimal("BALANCE")),
+                cashCardId, transactionId);
+        return snapshots.isEmpty() ? new Snapshot(0, BigDecimal.ZERO) : snapshots.get(0);
+    }
+}
@@ -8,6 +8,9 @@ import org.springframework.data.repository.PagingAndSortingRepository;
 public interface CashCardRepository extends CrudRepository<CashCard, Long>, PagingAndSortingRepository<CashCard, Long> {
     CashCard findByIdAndOwner(Long id, String owner);
     Page<CashCard> findByOwner(String owner, PageRequest amount);
+    Page<CashCard> findByOwnerAndAmountBetween(String owner, Double minAmount, Double maxAmount, PageRequest amount);
+    Page<CashCard> findByOwnerAndAmountGreaterThanEqual(String owner, Double minAmount, PageRequest amount);
+    Page<CashCard> findByOwnerAndAmountLessThanEqual(String owner, Double maxAmount, PageRequest amount);
     boolean existsByIdAndOwner(Long id, String owner);
 
 }
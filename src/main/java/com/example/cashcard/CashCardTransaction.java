@@ -0,0 +1,9 @@
+package com.example.cashcard;
+
+import java.time.LocalDateTime;
+
+//Un movimiento del libro mayor de una tarjeta, tal como lo devuelve GET /cashcards/{id}/transactions.
+//
+//type es CREDIT o DEBIT, amount siempre es positivo y balance es el saldo de la tarjeta justo después del movimiento.
+public record CashCardTransaction(Long id, String type, Double amount, Double balance, LocalDateTime createdAt) {
+}
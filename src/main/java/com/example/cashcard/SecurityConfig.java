@@ -1,16 +1,18 @@
 package com.example.cashcard;
 
+import org.springframework.beans.factory.annotation.Value;
 import org.springframework.context.annotation.Bean;
 import org.springframework.context.annotation.Configuration;
 import org.springframework.security.config.annotation.web.builders.HttpSecurity;
-import org.springframework.security.core.userdetails.User;
-import org.springframework.security.core.userdetails.UserDetails;
-import org.springframework.security.core.userdetails.UserDetailsService;
+import org.springframework.security.core.userdetails.UserCache;
 import org.springframework.security.crypto.bcrypt.BCryptPasswordEncoder;
 import org.springframework.security.crypto.password.PasswordEncoder;
-import org.springframework.security.provisioning.InMemoryUserDetailsManager;
+import org.springframework.security.provisioning.UserDetailsManager;
 import org.springframework.security.web.SecurityFilterChain;
 
+import javax.sql.DataSource;
+import java.time.Duration;
+
 @Configuration
 public class SecurityConfig {
 
@@ -40,26 +42,17 @@ public class SecurityConfig {
         return new BCryptPasswordEncoder();
     }
 
+    //Los usuarios ya no están fijos en memoria: se leen de las tablas USERS y ROLES (ver schema.sql) y se guardan
+    // en una caché acotada con TTL, que se invalida al cambiar la contraseña o los roles de un usuario en esta
+    // instancia. Los valores están en application.properties.
     @Bean
-    public UserDetailsService testOnlyUsers(PasswordEncoder passwordEncoder) {
-        User.UserBuilder users = User.builder();
-        UserDetails sarah = users
-                .username("sarah1")
-                .password(passwordEncoder.encode("abc123"))
-                .roles("CARD-OWNER") // new role
-                .build();
-
-        UserDetails hankOwnsNoCards = users
-                .username("hank-owns-no-cards")
-                .password(passwordEncoder.encode("qrs456"))
-                .roles("NON-OWNER") // new role
-                .build();
+    public UserCache userCache(@Value("${cashcard.security.user-cache.maximum-size}") long maximumSize,
+                               @Value("${cashcard.security.user-cache.time-to-live}") Duration timeToLive) {
+        return new CaffeineUserCache(maximumSize, timeToLive);
+    }
 
-        UserDetails kumar = users
-                .username("kumar2")
-                .password(passwordEncoder.encode("xyz789"))
-                .roles("CARD-OWNER")
-                .build();
-        return new InMemoryUserDetailsManager(sarah, hankOwnsNoCards, kumar);
+    @Bean
+    public UserDetailsManager cardholderUsers(DataSource dataSource, UserCache userCache) {
+        return new CachingJdbcUserDetailsManager(dataSource, userCache);
     }
 }
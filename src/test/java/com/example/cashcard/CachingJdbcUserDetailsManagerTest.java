@@ -0,0 +1,56 @@
+package com.example.cashcard;
+
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.security.core.authority.AuthorityUtils;
+import org.springframework.security.core.userdetails.User;
+import org.springframework.security.core.userdetails.UserDetails;
+import org.springframework.security.provisioning.UserDetailsManager;
+import org.springframework.test.annotation.DirtiesContext;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+/*
+ * Los usuarios se leen de la base de datos una sola vez y después se sirven desde la caché,
+ * hasta que se cambian a través del UserDetailsManager.
+ */
+@SpringBootTest
+@DirtiesContext(classMode = DirtiesContext.ClassMode.AFTER_EACH_TEST_METHOD)
+class CachingJdbcUserDetailsManagerTest {
+
+    @Autowired
+    UserDetailsManager users;
+
+    @Autowired
+    JdbcTemplate jdbcTemplate;
+
+    @Test
+    void shouldServeARepeatedLookupFromTheCache() {
+        users.loadUserByUsername("sarah1");
+
+        jdbcTemplate.update("UPDATE ROLES SET ROLE = 'ROLE_NON-OWNER' WHERE USERNAME = 'sarah1'");
+
+        UserDetails sarah = users.loadUserByUsername("sarah1");
+        assertThat(AuthorityUtils.authorityListToSet(sarah.getAuthorities())).containsExactly("ROLE_CARD-OWNER");
+    }
+
+    @Test
+    void shouldNotEraseTheCachedPasswordWhenACopyIsErased() {
+        User sarah = (User) users.loadUserByUsername("sarah1");
+        sarah.eraseCredentials();
+
+        assertThat(users.loadUserByUsername("sarah1").getPassword()).isNotNull();
+    }
+
+    @Test
+    void shouldInvalidateTheCacheWhenRolesChange() {
+        UserDetails sarah = users.loadUserByUsername("sarah1");
+
+        users.updateUser(User.withUserDetails(sarah).roles("NON-OWNER").build());
+
+        UserDetails updated = users.loadUserByUsername("sarah1");
+        assertThat(AuthorityUtils.authorityListToSet(updated.getAuthorities())).containsExactly("ROLE_NON-OWNER");
+    }
+}
@@ -14,6 +14,11 @@ import org.springframework.http.ResponseEntity;
 import org.springframework.test.annotation.DirtiesContext;
 
 import java.net.URI;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
 
 import static org.assertj.core.api.Assertions.assertThat;
 
@@ -236,6 +241,46 @@ class CashCardApplicationTests {
 		assertThat(amounts).containsExactly(1.00, 123.45, 150.00);
 	}
 
+	@Test
+	void shouldReturnCashCardsWithinAnAmountRange() {
+		ResponseEntity<String> response = restTemplate
+				.withBasicAuth("sarah1", "abc123")
+				.getForEntity("/cashcards?minAmount=100&maxAmount=200", String.class);
+		assertThat(response.getStatusCode()).isEqualTo(HttpStatus.OK);
+
+		DocumentContext documentContext = JsonPath.parse(response.getBody());
+		JSONArray amounts = documentContext.read("$..amount");
+		assertThat(amounts).containsExactly(123.45, 150.00);
+	}
+
+	@Test
+	void shouldReturnCashCardsWithAnOpenEndedAmountRange() {
+		ResponseEntity<String> response = restTemplate
+				.withBasicAuth("sarah1", "abc123")
+				.getForEntity("/cashcards?maxAmount=130&sort=amount,desc", String.class);
+		assertThat(response.getStatusCode()).isEqualTo(HttpStatus.OK);
+
+		DocumentContext documentContext = JsonPath.parse(response.getBody());
+		JSONArray amounts = documentContext.read("$..amount");
+		assertThat(amounts).containsExactly(123.45, 1.00);
+
+		response = restTemplate
+				.withBasicAuth("sarah1", "abc123")
+				.getForEntity("/cashcards?minAmount=123.45", String.class);
+		assertThat(response.getStatusCode()).isEqualTo(HttpStatus.OK);
+
+		amounts = JsonPath.parse(response.getBody()).read("$..amount");
+		assertThat(amounts).containsExactly(123.45, 150.00);
+	}
+
+	@Test
+	void shouldRejectAnInvertedAmountRange() {
+		ResponseEntity<String> response = restTemplate
+				.withBasicAuth("sarah1", "abc123")
+				.getForEntity("/cashcards?minAmount=200&maxAmount=100", String.class);
+		assertThat(response.getStatusCode()).isEqualTo(HttpStatus.BAD_REQUEST);
+	}
+
 	@Test
 	void shouldNotReturnACashCardWhenUsingBadCredentials() {
 		ResponseEntity<String> response = restTemplate
@@ -328,6 +373,92 @@ class CashCardApplicationTests {
 		assertThat(amount).isEqualTo(19.99);
 	}
 
+	@Test
+	@DirtiesContext
+	void shouldRecordLedgerTransactionsWhenACashCardIsUpdated() {
+		HttpEntity<CashCard> request = new HttpEntity<>(new CashCard(null, 100.00, null));
+		ResponseEntity<Void> response = restTemplate
+				.withBasicAuth("sarah1", "abc123")
+				.exchange("/cashcards/99", HttpMethod.PUT, request, Void.class);
+		assertThat(response.getStatusCode()).isEqualTo(HttpStatus.NO_CONTENT);
+
+		ResponseEntity<String> getResponse = restTemplate
+				.withBasicAuth("sarah1", "abc123")
+				.getForEntity("/cashcards/99/transactions", String.class);
+		assertThat(getResponse.getStatusCode()).isEqualTo(HttpStatus.OK);
+
+		DocumentContext documentContext = JsonPath.parse(getResponse.getBody());
+		JSONArray types = documentContext.read("$..type");
+		assertThat(types).containsExactly("DEBIT", "CREDIT");
+		JSONArray amounts = documentContext.read("$..amount");
+		assertThat(amounts).containsExactly(23.45, 123.45);
+		JSONArray balances = documentContext.read("$..balance");
+		assertThat(balances).containsExactly(100.00, 123.45);
+	}
+
+	@Test
+	@DirtiesContext
+	void shouldSetTheSameBalanceWhenUpdatesRaceEachOther() throws Exception {
+		HttpEntity<CashCard> request = new HttpEntity<>(new CashCard(null, 100.00, null));
+		ExecutorService executor = Executors.newFixedThreadPool(8);
+		List<Future<ResponseEntity<Void>>> responses = new ArrayList<>();
+		for (int i = 0; i < 8; i++) {
+			responses.add(executor.submit(() -> restTemplate
+					.withBasicAuth("sarah1", "abc123")
+					.exchange("/cashcards/99", HttpMethod.PUT, request, Void.class)));
+		}
+		for (Future<ResponseEntity<Void>> response : responses) {
+			assertThat(response.get().getStatusCode()).isEqualTo(HttpStatus.NO_CONTENT);
+		}
+		executor.shutdown();
+
+		ResponseEntity<String> getResponse = restTemplate
+				.withBasicAuth("sarah1", "abc123")
+				.getForEntity("/cashcards/99", String.class);
+		double amount = JsonPath.parse(getResponse.getBody()).read("$.amount");
+		assertThat(amount).isEqualTo(100.00);
+
+		ResponseEntity<String> transactions = restTemplate
+				.withBasicAuth("sarah1", "abc123")
+				.getForEntity("/cashcards/99/transactions", String.class);
+		JSONArray balances = JsonPath.parse(transactions.getBody()).read("$..balance");
+		assertThat(balances).containsExactly(100.00, 123.45);
+	}
+
+	@Test
+	@DirtiesContext
+	void shouldReturnTheNextPageOfTransactionsUsingTheLastId() {
+		HttpEntity<CashCard> request = new HttpEntity<>(new CashCard(null, 100.00, null));
+		restTemplate
+				.withBasicAuth("sarah1", "abc123")
+				.exchange("/cashcards/99", HttpMethod.PUT, request, Void.class);
+
+		ResponseEntity<String> firstPage = restTemplate
+				.withBasicAuth("sarah1", "abc123")
+				.getForEntity("/cashcards/99/transactions?size=1", String.class);
+		DocumentContext documentContext = JsonPath.parse(firstPage.getBody());
+		assertThat(documentContext.read("$.length()", Integer.class)).isEqualTo(1);
+		Number lastId = documentContext.read("$[0].id");
+
+		ResponseEntity<String> secondPage = restTemplate
+				.withBasicAuth("sarah1", "abc123")
+				.getForEntity("/cashcards/99/transactions?size=1&before=" + lastId, String.class);
+		documentContext = JsonPath.parse(secondPage.getBody());
+		assertThat(documentContext.read("$.length()", Integer.class)).isEqualTo(1);
+		String type = documentContext.read("$[0].type");
+		double balance = documentContext.read("$[0].balance");
+		assertThat(type).isEqualTo("CREDIT");
+		assertThat(balance).isEqualTo(123.45);
+	}
+
+	@Test
+	void shouldNotReturnTransactionsOfCashCardsTheyDoNotOwn() {
+		ResponseEntity<String> response = restTemplate
+				.withBasicAuth("sarah1", "abc123")
+				.getForEntity("/cashcards/102/transactions", String.class);
+		assertThat(response.getStatusCode()).isEqualTo(HttpStatus.NOT_FOUND);
+	}
+
 	@Test
 	void shouldNotUpdateACashCardThatDoesNotExist() {
 		CashCard unknownCard = new CashCard(null, 19.99, null);
@@ -0,0 +1,147 @@
+package com.example.cashcard;
+
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.test.annotation.DirtiesContext;
+
+import java.io.IOException;
+import java.math.BigDecimal;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.nio.file.attribute.FileTime;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+
+/*
+ * Segmentos de 64 bytes y bloques de 7 filas para que un fichero pequeño se reparta entre varios segmentos, hilos y
+ * transacciones. Los IDs de las tarjetas importadas siguen a las de data.sql (99..102) en el orden del fichero.
+ */
+@SpringBootTest
+@DirtiesContext(classMode = DirtiesContext.ClassMode.AFTER_EACH_TEST_METHOD)
+class CashCardImporterTest {
+
+    private static final int ROWS = 50;
+
+    @Autowired
+    CashCardImporter importer;
+
+    @Autowired
+    CashCardRepository cashCardRepository;
+
+    @Autowired
+    JdbcTemplate jdbcTemplate;
+
+    @TempDir
+    Path tempDir;
+
+    @Test
+    void shouldImportEveryRowWithItsOpeningLedgerEntry() throws Exception {
+        Path csv = writeCsv();
+
+        CashCardImporter.ImportResult result = importer.importFile(csv, 2, 7, 64);
+
+        assertThat(result.rows()).isEqualTo(ROWS);
+        Integer imported = jdbcTemplate.queryForObject("SELECT COUNT(*) FROM CASH_CARD WHERE ID > 102", Integer.class);
+        assertThat(imported).isEqualTo(ROWS);
+        for (int i = 0; i < ROWS; i++) {
+            CashCard cashCard = cashCardRepository.findById(103L + i).orElseThrow();
+            assertThat(cashCard.owner()).isEqualTo(owner(i));
+            assertThat(cashCard.amount()).isEqualTo(amount(i).doubleValue());
+        }
+
+        BigDecimal ledgerTotal = jdbcTemplate.queryForObject(
+                "SELECT SUM(CASE WHEN TYPE = 'CREDIT' THEN AMOUNT ELSE -AMOUNT END) FROM CASH_CARD_TRANSACTION " +
+                        "WHERE CASH_CARD_ID > 102", BigDecimal.class);
+        BigDecimal cardTotal = jdbcTemplate.queryForObject(
+                "SELECT SUM(AMOUNT) FROM CASH_CARD WHERE ID > 102", BigDecimal.class);
+        assertThat(ledgerTotal).isEqualByComparingTo(cardTotal);
+    }
+
+    @Test
+    void shouldNotImportTheSameFileTwice() throws Exception {
+        Path csv = writeCsv();
+        importer.importFile(csv, 2, 7, 64);
+
+        CashCardImporter.ImportResult again = importer.importFile(csv, 2, 7, 64);
+
+        assertThat(again.rows()).isZero();
+        Integer imported = jdbcTemplate.queryForObject("SELECT COUNT(*) FROM CASH_CARD WHERE ID > 102", Integer.class);
+        assertThat(imported).isEqualTo(ROWS);
+    }
+
+    @Test
+    void shouldResumeFromTheLastCommittedChunk() throws Exception {
+        Path csv = writeCsv();
+        Files.writeString(csv, "sarah1,not-a-number\n", StandardOpenOption.APPEND);
+
+        // La última fila no es válida: los bloques anteriores quedan confirmados.
+        assertThatThrownBy(() -> importer.importFile(csv, 1, 7, 64)).isInstanceOf(IllegalStateException.class);
+        Integer partial = jdbcTemplate.queryForObject("SELECT COUNT(*) FROM CASH_CARD WHERE ID > 102", Integer.class);
+        assertThat(partial).isBetween(1, ROWS);
+
+        // Se corrige la fila sin cambiar el tamaño del fichero ni la fecha para que siga siendo la misma importación.
+        long lastModified = Files.getLastModifiedTime(csv).toMillis();
+        Files.writeString(csv, Files.readString(csv).replace("not-a-number", "000000001.00"));
+        Files.setLastModifiedTime(csv, FileTime.fromMillis(lastModified));
+
+        importer.importFile(csv, 1, 7, 64);
+
+        Integer imported = jdbcTemplate.queryForObject("SELECT COUNT(*) FROM CASH_CARD WHERE ID > 102", Integer.class);
+        assertThat(imported).isEqualTo(ROWS + 1);
+        assertThat(cashCardRepository.findById(103L + ROWS).orElseThrow().amount()).isEqualTo(1.00);
+    }
+
+    @Test
+    void shouldKeepGeneratingIdsAfterTheImportedRange() throws Exception {
+        importer.importFile(writeCsv(), 2, 7, 64);
+
+        CashCard saved = cashCardRepository.save(new CashCard(null, 1.00, "sarah1"));
+
+        assertThat(saved.id()).isEqualTo(103L + ROWS);
+    }
+
+    @Test
+    void shouldNotReuseTheIdOfADeletedCard() throws Exception {
+        cashCardRepository.deleteById(102L);
+
+        importer.importFile(writeCsv(), 2, 7, 64);
+
+        // 102 conserva su historial en el libro mayor: la primera tarjeta importada es la 103.
+        assertThat(cashCardRepository.findById(102L)).isEmpty();
+        assertThat(cashCardRepository.findById(103L).orElseThrow().owner()).isEqualTo(owner(0));
+        Integer ledgerOf102 = jdbcTemplate.queryForObject(
+                "SELECT COUNT(*) FROM CASH_CARD_TRANSACTION WHERE CASH_CARD_ID = 102", Integer.class);
+        assertThat(ledgerOf102).isEqualTo(1);
+    }
+
+    @Test
+    void shouldImportAFirstRowWhoseOwnerIsCalledOwner() throws Exception {
+        Path csv = Files.writeString(tempDir.resolve("owner.csv"), "owner,5.00\nsarah1,6.00\n");
+
+        CashCardImporter.ImportResult result = importer.importFile(csv, 1, 7, 64);
+
+        assertThat(result.rows()).isEqualTo(2);
+        assertThat(cashCardRepository.findById(103L).orElseThrow().owner()).isEqualTo("owner");
+    }
+
+    private Path writeCsv() throws IOException {
+        StringBuilder csv = new StringBuilder("owner,amount\n");
+        for (int i = 0; i < ROWS; i++) {
+            csv.append(owner(i)).append(',').append(amount(i).toPlainString()).append(i % 10 == 0 ? "\r\n" : "\n");
+        }
+        return Files.writeString(tempDir.resolve("cards.csv"), csv);
+    }
+
+    private static String owner(int i) {
+        return i % 3 == 0 ? "sarah1" : "kumar2";
+    }
+
+    private static BigDecimal amount(int i) {
+        return i % 5 == 0 ? BigDecimal.ZERO : new BigDecimal(i + ".25");
+    }
+}
@@ -0,0 +1,84 @@
+package com.example.cashcard;
+
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.test.annotation.DirtiesContext;
+
+import java.math.BigDecimal;
+import java.util.List;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+import static org.assertj.core.api.Assertions.tuple;
+
+/*
+ * Con snapshot-interval=3 se guarda una instantánea cada tres movimientos, y el saldo después de cualquier
+ * movimiento tiene que coincidir con el que saldría de sumar todo el historial.
+ */
+@SpringBootTest(properties = "cashcard.ledger.snapshot-interval=3")
+@DirtiesContext(classMode = DirtiesContext.ClassMode.AFTER_EACH_TEST_METHOD)
+class CashCardLedgerTest {
+
+    @Autowired
+    CashCardLedger ledger;
+
+    @Autowired
+    JdbcTemplate jdbcTemplate;
+
+    @Test
+    void shouldReadBalancesFromSnapshotsAndTheirTail() {
+        for (int i = 0; i < 7; i++) {
+            ledger.append(99L, i % 2 == 0 ? new BigDecimal("10.00") : new BigDecimal("-2.50"));
+        }
+
+        Integer snapshots = jdbcTemplate.queryForObject(
+                "SELECT COUNT(*) FROM BALANCE_SNAPSHOT WHERE CASH_CARD_ID = 99", Integer.class);
+        assertThat(snapshots).isEqualTo(2);
+
+        List<CashCardTransaction> transactions = ledger.findTransactions(99L, null, 100);
+        assertThat(transactions).hasSize(8);
+        assertThat(transactions.get(0).balance()).isEqualTo(155.95);
+        assertThat(transactions.get(transactions.size() - 1).balance()).isEqualTo(123.45);
+
+        for (CashCardTransaction transaction : transactions) {
+            BigDecimal fullScan = jdbcTemplate.queryForObject(
+                    "SELECT SUM(CASE WHEN TYPE = 'CREDIT' THEN AMOUNT ELSE -AMOUNT END) FROM CASH_CARD_TRANSACTION " +
+                            "WHERE CASH_CARD_ID = 99 AND ID <= ?", BigDecimal.class, transaction.id());
+            assertThat(ledger.balanceAfter(99L, transaction.id())).isEqualByComparingTo(fullScan);
+        }
+
+        Double amount = jdbcTemplate.queryForObject("SELECT AMOUNT FROM CASH_CARD WHERE ID = 99", Double.class);
+        assertThat(amount).isEqualTo(155.95);
+    }
+
+    @Test
+    void shouldApplyBalancesOnTopOfTheCommittedAmount() {
+        ledger.append(99L, new BigDecimal("10.00"));
+        ledger.setBalance(99L, new BigDecimal("100.00"));
+        ledger.setBalance(99L, new BigDecimal("100.00"));
+
+        List<CashCardTransaction> transactions = ledger.findTransactions(99L, null, 100);
+        assertThat(transactions).extracting(CashCardTransaction::balance).containsExactly(100.00, 133.45, 123.45);
+    }
+
+    @Test
+    void shouldCreateACardTogetherWithItsOpeningEntry() {
+        CashCard created = ledger.create("sarah1", new BigDecimal("42.50"));
+
+        Double amount = jdbcTemplate.queryForObject(
+                "SELECT AMOUNT FROM CASH_CARD WHERE ID = ?", Double.class, created.id());
+        assertThat(amount).isEqualTo(42.50);
+        assertThat(ledger.findTransactions(created.id(), null, 100))
+                .extracting(CashCardTransaction::type, CashCardTransaction::balance)
+                .containsExactly(tuple("CREDIT", 42.50));
+    }
+
+    @Test
+    void shouldRejectEntriesAfterStop() {
+        ledger.stop();
+
+        assertThatThrownBy(() -> ledger.append(99L, BigDecimal.ONE)).isInstanceOf(IllegalStateException.class);
+    }
+}
@@ -1,4 +1,14 @@
 INSERT INTO CASH_CARD(ID, AMOUNT, OWNER) VALUES (99, 123.45, 'sarah1');
 INSERT INTO CASH_CARD(ID, AMOUNT, OWNER) VALUES (100, 1.00, 'sarah1');
 INSERT INTO CASH_CARD(ID, AMOUNT, OWNER) VALUES (101, 150.00, 'sarah1');
-INSERT INTO CASH_CARD(ID, AMOUNT, OWNER) VALUES (102, 200.00, 'kumar2');
\ No newline at end of file
+INSERT INTO CASH_CARD(ID, AMOUNT, OWNER) VALUES (102, 200.00, 'kumar2');
+INSERT INTO USERS(USERNAME, PASSWORD, ENABLED) VALUES ('sarah1', '$2a$10$Pne1XSnmq4oyELc0N50B2.5nEJE.c4RxiWhPVE1fYMGD4Xei3ZeS2', TRUE);
+INSERT INTO USERS(USERNAME, PASSWORD, ENABLED) VALUES ('hank-owns-no-cards', '$2a$10$KNIfkFZHAHJoFK0KKnVlz.4xycvzkDFDlFw.SwFoWhj6oX0LWjILK', TRUE);
+INSERT INTO USERS(USERNAME, PASSWORD, ENABLED) VALUES ('kumar2', '$2a$10$Ca.VxZ4NJzcZ5cwh8Pwz5.Ymen31enxNecaN7xRTSu6Yw7.BY2v9.', TRUE);
+INSERT INTO ROLES(USERNAME, ROLE) VALUES ('sarah1', 'ROLE_CARD-OWNER');
+INSERT INTO ROLES(USERNAME, ROLE) VALUES ('hank-owns-no-cards', 'ROLE_NON-OWNER');
+INSERT INTO ROLES(USERNAME, ROLE) VALUES ('kumar2', 'ROLE_CARD-OWNER');
+INSERT INTO CASH_CARD_TRANSACTION(CASH_CARD_ID, TYPE, AMOUNT) VALUES (99, 'CREDIT', 123.45);
+INSERT INTO CASH_CARD_TRANSACTION(CASH_CARD_ID, TYPE, AMOUNT) VALUES (100, 'CREDIT', 1.00);
+INSERT INTO CASH_CARD_TRANSACTION(CASH_CARD_ID, TYPE, AMOUNT) VALUES (101, 'CREDIT', 150.00);
+INSERT INTO CASH_CARD_TRANSACTION(CASH_CARD_ID, TYPE, AMOUNT) VALUES (102, 'CREDIT', 200.00);
@@ -3,4 +3,59 @@ CREATE TABLE cash_card
     ID       BIGINT GENERATED BY DEFAULT AS IDENTITY PRIMARY KEY,
     AMOUNT   NUMBER NOT NULL DEFAULT 0,
     OWNER    VARCHAR(256) NOT NULL
-);
\ No newline at end of file
+);
+
+CREATE INDEX IDX_CASH_CARD_OWNER_AMOUNT ON cash_card (OWNER, AMOUNT);
+
+CREATE TABLE users
+(
+    USERNAME VARCHAR(256) NOT NULL PRIMARY KEY,
+    PASSWORD VARCHAR(500) NOT NULL,
+    ENABLED  BOOLEAN NOT NULL DEFAULT TRUE
+);
+
+CREATE TABLE roles
+(
+    USERNAME VARCHAR(256) NOT NULL REFERENCES users (USERNAME),
+    ROLE     VARCHAR(64) NOT NULL,
+    PRIMARY KEY (USERNAME, ROLE)
+);
+
+-- Libro mayor de cada tarjeta: sólo se insertan filas, nunca se modifican ni se borran.
+CREATE TABLE cash_card_transaction
+(
+    ID           BIGINT GENERATED BY DEFAULT AS IDENTITY PRIMARY KEY,
+    CASH_CARD_ID BIGINT NOT NULL,
+    TYPE         VARCHAR(6) NOT NULL,
+    AMOUNT       NUMBER NOT NULL,
+    CREATED_AT   TIMESTAMP NOT NULL DEFAULT CURRENT_TIMESTAMP
+);
+
+CREATE INDEX IDX_CASH_CARD_TRANSACTION_CARD ON cash_card_transaction (CASH_CARD_ID, ID);
+
+-- Saldo de la tarjeta después del movimiento TRANSACTION_ID.
+CREATE TABLE balance_snapshot
+(
+    CASH_CARD_ID   BIGINT NOT NULL,
+    TRANSACTION_ID BIGINT NOT NULL,
+    BALANCE        NUMBER NOT NULL,
+    PRIMARY KEY (CASH_CARD_ID, TRANSACTION_ID)
+);
+
+-- Importaciones masivas de CSV (CashCardImporter) y su avance por segmento del fichero, para poder reanudarlas.
+CREATE TABLE cash_card_import
+(
+    IMPORT_ID VARCHAR(1024) NOT NULL PRIMARY KEY,
+    ID_BASE   BIGINT NOT NULL,
+    COMPLETED BOOLEAN NOT NULL DEFAULT FALSE
+);
+
+CREATE TABLE cash_card_import_segment
+(
+    IMPORT_ID   VARCHAR(1024) NOT NULL,
+    SEGMENT     INT NOT NULL,
+    END_OFFSET  BIGINT NOT NULL,
+    NEXT_OFFSET BIGINT NOT NULL,
+    NEXT_ROW    BIGINT NOT NULL,
+    PRIMARY KEY (IMPORT_ID, SEGMENT)
+);